@@ -1,138 +1,366 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
 public class AIController {
 
-    private TetrisGame game;
+    private MatchEngine engine;
     private int playerIndex;
     private Board board;
     private Piece currentPiece;
 
-    // AI decision-making parameters (can be tuned)
-    // Used for Simple evaluation: sum of cleared lines, negative for height, holes, bumpiness
-    private static final double HEIGHT_WEIGHT = -0.510066;
-    private static final double LINES_WEIGHT = 0.760666;
-    private static final double HOLES_WEIGHT = -0.35663;
-    private static final double BUMPINESS_WEIGHT = -0.184483;
-
     private double aiMoveTimer = 0;
     private double aiMoveDelay = 1; // Seconds between AI "thinking" and executing moves
 
-    public AIController(TetrisGame game, int playerIndex) {
-        this.game = game;
+    // Lookahead search over the current piece and the preview queue
+    // Searches in parallel whenever there is more than one core to spread it over
+    private BeamSearchPlanner planner = new BeamSearchPlanner(BeamSearchPlanner.DEFAULT_DEPTH,
+            BeamSearchPlanner.DEFAULT_BEAM_WIDTH, BeamSearchPlanner.DEFAULT_NODE_BUDGET,
+            Runtime.getRuntime().availableProcessors() > 1);
+    private int[] pieceQueue; // Current piece type followed by the preview, reused between decisions
+    private int bestRotation;
+    private int bestX;
+    private int bestY;
+
+    // Turns a target placement into inputs from wherever the live piece is right now
+    private final PlacementGenerator moveGenerator = new PlacementGenerator();
+    private final byte[] movePath = new byte[PlacementGenerator.MAX_PATH];
+
+    // Asynchronous mode: the search runs on a background thread against a snapshot taken when the
+    // piece spawns, and the finished plan comes back through readyPlan. The game loop never waits.
+    private boolean async;
+    private ExecutorService searchExecutor;
+    private final AtomicReference<Plan> readyPlan = new AtomicReference<>();
+    private final AtomicLong latestRequest = new AtomicLong(); // Queued requests older than this are skipped
+    private int requestedSerial = -1;
+    private long requestedVersion = -1;
+
+    // A finished search, tagged with the piece and board state it was computed for
+    private static final class Plan {
+        final int spawnSerial;
+        final long boardVersion;
+        final boolean found;
+        final int rotation;
+        final int x;
+        final int y;
+
+        Plan(int spawnSerial, long boardVersion, boolean found, int rotation, int x, int y) {
+            this.spawnSerial = spawnSerial;
+            this.boardVersion = boardVersion;
+            this.found = found;
+            this.rotation = rotation;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    // Heap bytes allocated by the last search (-1 if the JVM can't measure it)
+    private volatile long lastDecisionAllocatedBytes = -1;
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    public AIController(MatchEngine engine, int playerIndex) {
+        this.engine = engine;
         this.playerIndex = playerIndex;
         // Board and piece will be updated each frame or when a new piece spawns
     }
 
     public void update(double dt) {
-        if (game.getPlayerGameState(playerIndex) == null || game.getPlayerGameState(playerIndex).isGameOver() || game.isGloballyPaused()) {
+        if (engine.getPlayerGameState(playerIndex).isGameOver() || engine.isMatchOver()) {
             return;
         }
-        if (game.getPlayerGameState(playerIndex).isShowCountdown()) { // Don't act during countdown
+        if (engine.getPlayerGameState(playerIndex).isShowCountdown()) { // Don't act during countdown
+            return;
+        }
+        if (async) {
+            updateAsync(dt);
             return;
         }
-
 
         aiMoveTimer += dt;
         if (aiMoveTimer >= aiMoveDelay) {
             aiMoveTimer = 0;
             
-            this.board = game.getBoard(playerIndex);
-            this.currentPiece = game.getCurrentPiece(playerIndex);
+            this.board = engine.getBoard(playerIndex);
+            this.currentPiece = engine.getCurrentPiece(playerIndex);
 
             if (this.board == null || this.currentPiece == null) {
                 return; // Not ready to make a move
             }
             
-            BestMove bestMove = findBestMove();
-
-            if (bestMove != null) {
-                executeMove(bestMove);
+            if (findBestMove()) {
+                executeMove(bestRotation, bestX, bestY);
             } else {
                 // If no move found (should ideally not happen if piece is spawnable),
                 // maybe just hard drop in current position as a fallback.
-                game.hardDropActivePiece(playerIndex);
+                engine.hardDrop(playerIndex);
             }
         }
     }
 
-    private class BestMove {
-        int rotation;
-        int xPosition;
+    private void updateAsync(double dt) {
+        this.board = engine.getBoard(playerIndex);
+        this.currentPiece = engine.getCurrentPiece(playerIndex);
+        if (this.board == null || this.currentPiece == null) {
+            return;
+        }
 
-        BestMove(int rotation, int xPosition) {
-            this.rotation = rotation;
-            this.xPosition = xPosition;
+        int spawnSerial = currentPiece.getSpawnSerial();
+        long boardVersion = board.getVersion();
+        if (spawnSerial != requestedSerial || boardVersion != requestedVersion) {
+            requestPlan(spawnSerial, boardVersion); // New piece, or garbage changed the board mid-think
+        }
+
+        aiMoveTimer += dt;
+        if (aiMoveTimer < aiMoveDelay) {
+            return;
+        }
+        Plan plan = readyPlan.get();
+        if (plan == null || plan.spawnSerial != spawnSerial || plan.boardVersion != boardVersion) {
+            return; // Still thinking (or the plan is stale), check again next frame
+        }
+
+        if (!plan.found) {
+            aiMoveTimer = 0;
+            engine.hardDrop(playerIndex); // Same fallback as the synchronous mode
+        } else if (executeMove(plan.rotation, plan.x, plan.y)) {
+            aiMoveTimer = 0;
+        } else {
+            // The piece fell past the plan's start: drop the plan so it isn't retried every tick,
+            // and think again once from where the piece is now
+            readyPlan.compareAndSet(plan, null);
+            requestedSerial = -1;
         }
     }
 
-    private BestMove findBestMove() {
-        BestMove bestMoveAction = null;
-        double bestScore = Double.NEGATIVE_INFINITY;
+    // Snapshots the board and upcoming pieces and queues a search for them on the background thread
+    private void requestPlan(int spawnSerial, long boardVersion) {
+        requestedSerial = spawnSerial;
+        requestedVersion = boardVersion;
 
-        Piece originalPiece = new Piece(this.currentPiece);
+        Board snapshot = new Board(this.board); // The live board keeps changing while we think
+        int startX = currentPiece.getX();
+        int startY = currentPiece.getY();
+        int startRotation = currentPiece.getCurrentRotation();
+        int pieceCount = fillPieceQueue();
+        int[] pieces = Arrays.copyOf(pieceQueue, pieceCount);
+        long request = latestRequest.incrementAndGet();
+        BeamSearchPlanner searchPlanner = planner;
 
-        for (int r = 0; r < 4; r++) {
-            Piece simulatedPiece = new Piece(originalPiece);
-            for(int i=0; i<r; i++) {
-                 simulatedPiece.rotateClockwiseForSimulation();
+        searchExecutor.execute(() -> {
+            if (latestRequest.get() != request) {
+                return; // A newer snapshot is already queued
             }
-           
-            for (int x = -simulatedPiece.getLeftmostX(); x < Board.WIDTH - simulatedPiece.getRightmostXAfterSpawn(x); x++) {
-                Board simulatedBoard = new Board(this.board);
-                Piece testPiece = new Piece(simulatedPiece);
-                testPiece.setX(x);
-                testPiece.setY(testPiece.getSpawnY());
-
-                while (!testPiece.checkCollision(testPiece.getX(), testPiece.getY() + 1, testPiece.getCurrentRotation(), simulatedBoard)) {
-                    testPiece.moveDownForSimulation();
-                }
-                
-                simulatedBoard.addPieceToBoard(testPiece);
+            long allocatedBefore = currentThreadAllocatedBytes();
+            boolean found = searchPlanner.plan(snapshot, pieces, pieces.length, startX, startY, startRotation);
+            if (allocatedBefore >= 0) {
+                lastDecisionAllocatedBytes = currentThreadAllocatedBytes() - allocatedBefore;
+            }
+            readyPlan.set(new Plan(spawnSerial, boardVersion, found,
+                    searchPlanner.getBestRotation(), searchPlanner.getBestX(), searchPlanner.getBestY()));
+        });
+    }
 
-                double currentScore = evaluateBoard(simulatedBoard, testPiece);
+    // Decides, walks and hard drops the current piece in one call, skipping the move delay.
+    // For simulations such as SelfPlayRunner; returns false if the player can't move any more.
+    public boolean playPiece() {
+        if (engine.getPlayerGameState(playerIndex).isGameOver() || engine.isMatchOver()) {
+            return false;
+        }
+        this.board = engine.getBoard(playerIndex);
+        this.currentPiece = engine.getCurrentPiece(playerIndex);
+        if (findBestMove()) {
+            executeMove(bestRotation, bestX, bestY); // If the walk is cut short, drop from where it stopped
+        }
+        return engine.hardDrop(playerIndex);
+    }
 
-                if (currentScore > bestScore) {
-                    bestScore = currentScore;
-                    bestMoveAction = new BestMove(r, x);
-                }
-            }
+    // Plans with the beam search over the current piece and the preview pieces.
+    // Leaves the winner in bestRotation/bestX/bestY and returns false if nothing fits.
+    private boolean findBestMove() {
+        long allocatedBefore = currentThreadAllocatedBytes();
+
+        int pieceCount = fillPieceQueue();
+        boolean found = planner.plan(this.board, pieceQueue, pieceCount,
+                currentPiece.getX(), currentPiece.getY(), currentPiece.getCurrentRotation());
+        if (found) {
+            bestRotation = planner.getBestRotation();
+            bestX = planner.getBestX();
+            bestY = planner.getBestY();
+        }
+
+        if (allocatedBefore >= 0) {
+            lastDecisionAllocatedBytes = currentThreadAllocatedBytes() - allocatedBefore;
         }
-        return bestMoveAction;
+        return found;
     }
 
-    private double evaluateBoard(Board boardToEvaluate, Piece piecePlaced) {
+    private int fillPieceQueue() {
+        int pieceCount = Math.min(planner.getMaxDepth(), 1 + currentPiece.getPreviewSize());
+        if (pieceQueue == null || pieceQueue.length < pieceCount) {
+            pieceQueue = new int[pieceCount]; // Only allocation, on the first decision
+        }
+        pieceQueue[0] = currentPiece.getPieceType();
+        for (int i = 1; i < pieceCount; i++) {
+            pieceQueue[i] = currentPiece.peekNextPieceType(i - 1);
+        }
+        return pieceCount;
+    }
+
+    // Replaces the planner, e.g. to trade lookahead depth or beam width for speed
+    // (parallel and serial search pick the same move, parallel just gets there sooner)
+    public void configureSearch(int depth, int beamWidth, int nodeBudget, boolean parallel) {
+        EvaluationWeights weights = planner.getWeights();
+        planner = new BeamSearchPlanner(depth, beamWidth, nodeBudget, parallel);
+        planner.setWeights(weights);
+    }
+
+    // AI decision-making parameters, e.g. ones produced by WeightTuner
+    public void setWeights(EvaluationWeights weights) {
+        planner.setWeights(weights);
+    }
+
+    public EvaluationWeights getWeights() {
+        return planner.getWeights();
+    }
+
+    // Moves the search to a background thread so it can never stall the game loop
+    public void setAsync(boolean async) {
+        if (async && searchExecutor == null) {
+            searchExecutor = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "ai-planner-" + playerIndex);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.async = async;
+        requestedSerial = -1; // Force a fresh snapshot on the next update
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    // Stops the background thread; call when the controller is thrown away
+    public void shutdown() {
+        if (searchExecutor != null) {
+            searchExecutor.shutdownNow();
+            searchExecutor = null;
+        }
+        async = false;
+    }
+
+    // Static evaluation of a board; linesCleared counts every line cleared along the searched path
+    static double evaluateBoard(Board boardToEvaluate, int linesCleared, EvaluationWeights weights) {
         // Simple evaluation: sum of cleared lines, negative for height, holes, bumpiness
-        int linesCleared = boardToEvaluate.countPotentialLineClears(piecePlaced);
         int aggregateHeight = boardToEvaluate.getAggregateHeight();
         int holes = boardToEvaluate.countHoles();
         int bumpiness = boardToEvaluate.getBumpiness();
 
-        return linesCleared * LINES_WEIGHT +
-               aggregateHeight * HEIGHT_WEIGHT +
-               holes * HOLES_WEIGHT +
-               bumpiness * BUMPINESS_WEIGHT;
+        return linesCleared * weights.getLines() +
+               aggregateHeight * weights.getHeight() +
+               holes * weights.getHoles() +
+               bumpiness * weights.getBumpiness();
     }
-    
 
-    private void executeMove(BestMove move) {
-        // 1. Rotate piece to target rotation
-        int currentRotation = currentPiece.getCurrentRotation();
-        int rotationsNeeded = (move.rotation - currentRotation + 4) % 4;
-        for (int i = 0; i < rotationsNeeded; i++) {
-            game.rotateActivePiece(playerIndex, true); // Assuming clockwise rotation
+    private static long currentThreadAllocatedBytes() {
+        if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
         }
+        return -1;
+    }
+
+    public long getLastDecisionAllocatedBytes() {
+        return lastDecisionAllocatedBytes;
+    }
 
-        // 2. Move piece to target xPosition
-        int currentX = currentPiece.getX();
-        if (move.xPosition < currentX) {
-            for (int i = 0; i < currentX - move.xPosition; i++) {
-                game.moveActivePieceLeft(playerIndex);
+    // Hit-rate statistics of the search's transposition table (see TranspositionTable.toString)
+    public TranspositionTable getTranspositionTable() {
+        return planner.getTranspositionTable();
+    }
+    
+
+    // Walks the live piece to the target placement along the shortest input path. Like a player,
+    // it rotates and shifts while the piece is still high up and leaves the fall to gravity: a down
+    // step of the path is only taken when the next rotation or shift has to happen lower down,
+    // e.g. to tuck under an overhang. Returns false if the target can't be reached from where
+    // the piece is now or an input gets rejected.
+    private boolean executeMove(int targetRotation, int targetX, int targetY) {
+        int shapeId = currentPiece.getPieceType();
+        int x = currentPiece.getX();
+        int y = currentPiece.getY();
+        int rotation = currentPiece.getCurrentRotation();
+        moveGenerator.generate(board, shapeId, x, y, rotation);
+        int placement = moveGenerator.findPlacement(targetX, targetY, targetRotation);
+        if (placement < 0) {
+            return false;
+        }
+        int length = moveGenerator.getPath(placement, movePath);
+        int pendingDown = 0; // Down steps of the path not taken yet; the live piece is this much higher
+        for (int i = 0; i < length; i++) {
+            byte move = movePath[i];
+            if (move == PlacementGenerator.MOVE_DOWN) {
+                pendingDown++;
+                y++;
+                continue;
+            }
+            int nextX = x;
+            int nextRotation = rotation;
+            if (move == PlacementGenerator.MOVE_LEFT) {
+                nextX--;
+            } else if (move == PlacementGenerator.MOVE_RIGHT) {
+                nextX++;
+            } else if (move == PlacementGenerator.ROTATE_CW) {
+                nextRotation = (rotation + 1) % PieceRotations.ROTATIONS;
+            } else {
+                nextRotation = (rotation + 3) % PieceRotations.ROTATIONS;
             }
-        } else if (move.xPosition > currentX) {
-            for (int i = 0; i < move.xPosition - currentX; i++) {
-                game.moveActivePieceRight(playerIndex);
+            if (!fallsClear(PieceRotations.get(shapeId, nextRotation), nextX, y - pendingDown, y)) {
+                for (; pendingDown > 0; pendingDown--) { // Needed for a tuck: go down first
+                    if (!engine.moveDown(playerIndex)) {
+                        return false;
+                    }
+                }
+            }
+            if (!applyMove(move)) {
+                return false;
             }
+            x = nextX;
+            rotation = nextRotation;
+        }
+        // No hard drop: the path ends straight above the landing spot and the game loop drops
+        // and locks the piece
+        return true;
+    }
+
+    // True if the piece fits at every row from fromY down to toY in column x
+    private boolean fallsClear(PieceRotations.Rotation rotation, int x, int fromY, int toY) {
+        for (int y = fromY; y <= toY; y++) {
+            if (board.collides(rotation, x, y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean applyMove(byte move) {
+        switch (move) {
+            case PlacementGenerator.MOVE_LEFT:
+                return engine.moveLeft(playerIndex);
+            case PlacementGenerator.MOVE_RIGHT:
+                return engine.moveRight(playerIndex);
+            case PlacementGenerator.MOVE_DOWN:
+                return engine.moveDown(playerIndex);
+            case PlacementGenerator.ROTATE_CW:
+                return engine.rotate(playerIndex, true);
+            case PlacementGenerator.ROTATE_CCW:
+                return engine.rotate(playerIndex, false);
+            default:
+                return false;
         }
-        // 3. Hard drop removed - game loop will handle soft drop
-        // game.hardDropActivePiece(playerIndex); 
-        // found a bug when using the soft drop, it would stop playing after a while.
     }
-} 
\ No newline at end of file
+}
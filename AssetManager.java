@@ -1,4 +1,9 @@
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
 public class AssetManager {
     private GameEngine engine; // to pass specific loadImage/loadAudio methods
@@ -17,6 +22,14 @@ public class AssetManager {
     public Image[] tilePalette;
     // public Image[] tileGhost; to be used in future for ghost pieces
 
+    // Sprite atlas: every palette tile pre-scaled to each size it is drawn at, in one image in
+    // the screen's pixel format. Row r holds the tiles at atlasSizes[r], column = palette index.
+    private BufferedImage tileAtlas;
+    private int[] atlasSizes = new int[0];
+    private int[] atlasRowY = new int[0];
+    private GraphicsConfiguration atlasConfig; // Configuration and window size the atlas was built for
+    private int atlasWindowWidth = -1, atlasWindowHeight = -1;
+
     // Sound effects
     public GameEngine.AudioClip rotateSound;
     public GameEngine.AudioClip moveSound;
@@ -34,24 +47,23 @@ public class AssetManager {
     public GameEngine.AudioClip levelUpSound;
 
 
-    // Background Music
-    private GameEngine.AudioClip[] backgroundTracks;
-    private GameEngine.AudioClip currentMusic;
-    private boolean isMusicPlaying;
-    private int currentTrackIndex;
-    private static final int TRACK_COUNT = 3;
+    // Pre-opened lines per sound effect. Moves, rotations and soft drops repeat faster than they
+    // finish while a key auto-repeats, so they get an extra voice before the oldest is cut off.
+    private static final int SOUND_VOICES = 2;
+    private static final int RAPID_SOUND_VOICES = 3;
 
-    // Background Music durations in seconds
-    private static final double[] TRACK_DURATIONS = {
-        292.0,  // bgm_1 (4:52)
-        83.0,   // bgm_2 (1:23)
-        290.0   // bgm_3 (4:50)
+    // Background Music, streamed from disk rather than loaded
+    private static final String[] BACKGROUND_TRACKS = {
+        WAV_PATH + "bgm_1.wav",
+        WAV_PATH + "bgm_2.wav",
+        WAV_PATH + "bgm_3.wav"
     };
-    private double musicTimer;
+    private final MusicStreamer music = new MusicStreamer();
+    private boolean isMusicPlaying;
+    private int currentTrackIndex;
 
     public AssetManager(GameEngine ge) {
         this.engine = ge;
-        this.backgroundTracks = new GameEngine.AudioClip[TRACK_COUNT];
         this.isMusicPlaying = false;
         this.currentTrackIndex = 0;
     }
@@ -88,31 +100,75 @@ public class AssetManager {
         // Sounds
         // define sound assets for tetromino game, like rotate, soft drop, hard drop, etc.
         // Movement and Rotation
-        rotateSound = engine.loadAudio(WAV_PATH + "rotate.wav");
-        moveSound = engine.loadAudio(WAV_PATH + "move.wav");
-        lockSound = engine.loadAudio(WAV_PATH + "lock.wav");
+        rotateSound = engine.loadAudio(WAV_PATH + "rotate.wav", RAPID_SOUND_VOICES);
+        moveSound = engine.loadAudio(WAV_PATH + "move.wav", RAPID_SOUND_VOICES);
+        lockSound = engine.loadAudio(WAV_PATH + "lock.wav", SOUND_VOICES);
 
         // Line Clears
-        singleLineSound = engine.loadAudio(WAV_PATH + "single.wav");
-        doubleLineSound = engine.loadAudio(WAV_PATH + "double.wav");
-        tripleLineSound = engine.loadAudio(WAV_PATH + "triple.wav");
-        tetrisSound = engine.loadAudio(WAV_PATH + "tetris.wav");
+        singleLineSound = engine.loadAudio(WAV_PATH + "single.wav", SOUND_VOICES);
+        doubleLineSound = engine.loadAudio(WAV_PATH + "double.wav", SOUND_VOICES);
+        tripleLineSound = engine.loadAudio(WAV_PATH + "triple.wav", SOUND_VOICES);
+        tetrisSound = engine.loadAudio(WAV_PATH + "tetris.wav", SOUND_VOICES);
 
         // Drops and Hold
-        softDropSound = engine.loadAudio(WAV_PATH + "soft_drop.wav");
-        hardDropSound = engine.loadAudio(WAV_PATH + "hard_drop.wav");
-        holdSound = engine.loadAudio(WAV_PATH + "hold.wav");
+        softDropSound = engine.loadAudio(WAV_PATH + "soft_drop.wav", RAPID_SOUND_VOICES);
+        hardDropSound = engine.loadAudio(WAV_PATH + "hard_drop.wav", SOUND_VOICES);
+        holdSound = engine.loadAudio(WAV_PATH + "hold.wav", SOUND_VOICES);
 
         // Failure and Game States
-        blockedMoveSound = engine.loadAudio(WAV_PATH + "blocked_move.wav");
-        blockedRotateSound = engine.loadAudio(WAV_PATH + "blocked_rotate.wav");
-        levelUpSound = engine.loadAudio(WAV_PATH + "level_up.wav");
-        gameOverSound = engine.loadAudio(WAV_PATH + "game_over.wav");
-
-        // Load background music tracks
-        backgroundTracks[0] = engine.loadAudio(WAV_PATH + "bgm_1.wav");
-        backgroundTracks[1] = engine.loadAudio(WAV_PATH + "bgm_2.wav");
-        backgroundTracks[2] = engine.loadAudio(WAV_PATH + "bgm_3.wav");
+        blockedMoveSound = engine.loadAudio(WAV_PATH + "blocked_move.wav", RAPID_SOUND_VOICES);
+        blockedRotateSound = engine.loadAudio(WAV_PATH + "blocked_rotate.wav", RAPID_SOUND_VOICES);
+        levelUpSound = engine.loadAudio(WAV_PATH + "level_up.wav", SOUND_VOICES);
+        gameOverSound = engine.loadAudio(WAV_PATH + "game_over.wav", SOUND_VOICES);
+    }
+
+    // Rebuilds the tile atlas for the given tile sizes if the window has been resized or moved
+    // to a screen with a different configuration since it was last built
+    public void updateTileAtlas(int... sizes) {
+        GraphicsConfiguration config = engine.getGraphicsConfiguration();
+        if (tileAtlas != null && config == atlasConfig && engine.width() == atlasWindowWidth
+                && engine.height() == atlasWindowHeight && Arrays.equals(sizes, atlasSizes)) {
+            return;
+        }
+        atlasConfig = config;
+        atlasWindowWidth = engine.width();
+        atlasWindowHeight = engine.height();
+        atlasSizes = sizes.clone();
+        atlasRowY = new int[sizes.length];
+
+        int width = 0, height = 0;
+        for (int r = 0; r < sizes.length; r++) {
+            atlasRowY[r] = height;
+            height += sizes[r];
+            width = Math.max(width, sizes[r] * tilePalette.length);
+        }
+        if (tileAtlas != null) {
+            tileAtlas.flush();
+        }
+        tileAtlas = config != null
+                ? config.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+        // Scale each source tile once, with the same drawImage the per-frame draws used to do
+        Graphics2D g = tileAtlas.createGraphics();
+        for (int r = 0; r < sizes.length; r++) {
+            for (int i = 0; i < tilePalette.length; i++) {
+                g.drawImage(tilePalette[i], i * sizes[r], atlasRowY[r], sizes[r], sizes[r], null);
+            }
+        }
+        g.dispose();
+    }
+
+    // Draws palette tile `color` at (x,y) with edge length `size`: an unscaled copy out of the
+    // atlas when that size is in it, otherwise the source image scaled on the fly
+    public void drawTile(int color, int size, double x, double y) {
+        for (int r = 0; r < atlasSizes.length; r++) {
+            if (atlasSizes[r] == size) {
+                engine.drawSubImage(tileAtlas, color * size, atlasRowY[r], size, size, x, y);
+                return;
+            }
+        }
+        engine.drawImage(tilePalette[color], x, y, size, size);
     }
 
     // Helper method to play sounds with consistent volume
@@ -145,34 +201,16 @@ public class AssetManager {
     }
 
     public void startMusic() {
-        if (currentTrackIndex >= 0 && currentTrackIndex < backgroundTracks.length) {
-            currentMusic = backgroundTracks[currentTrackIndex];
-            if (currentMusic != null) {
-                engine.startAudioLoop(currentMusic);  // Changed from startAudioLoop
-                musicTimer = 0.0;  // Reset timer
-                isMusicPlaying = true;
-            }
-        }
-    }
-
-    // Add this method to update music
-    public void updateMusic(double dt) {
-        if (isMusicPlaying && currentTrackIndex >= 0) {
-            musicTimer += dt;
-            if (musicTimer >= TRACK_DURATIONS[currentTrackIndex]) {
-                // Restart the track
-                engine.stopAudioLoop(currentMusic);
-                engine.startAudioLoop(currentMusic);
-                musicTimer = 0.0;
-            }
+        if (currentTrackIndex >= 0 && currentTrackIndex < BACKGROUND_TRACKS.length) {
+            music.play(BACKGROUND_TRACKS[currentTrackIndex]);
+            isMusicPlaying = true;
         }
     }
 
     public void stopMusic() {
-        if (currentMusic != null && isMusicPlaying) {
-            engine.stopAudioLoop(currentMusic);  // Changed from stopAudioLoop
+        if (isMusicPlaying) {
+            music.stop();
             isMusicPlaying = false;
-            musicTimer = 0.0;
         }
     }
 }
\ No newline at end of file
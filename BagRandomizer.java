@@ -0,0 +1,39 @@
+import java.util.SplittableRandom;
+
+// Deals each piece type `copies` times per bag in shuffled order, then refills
+public class BagRandomizer implements Randomizer {
+    private final int[] bag;
+    private int index;
+    private SplittableRandom random;
+
+    public BagRandomizer(int copies) {
+        bag = new int[PIECE_TYPES * copies];
+        for (int i = 0; i < bag.length; i++) {
+            bag[i] = i % PIECE_TYPES;
+        }
+    }
+
+    @Override
+    public void reset(long seed) {
+        random = new SplittableRandom(seed);
+        for (int i = 0; i < bag.length; i++) {
+            bag[i] = i % PIECE_TYPES; // Same starting order, so the shuffles depend only on the seed
+        }
+        index = bag.length;
+    }
+
+    @Override
+    public int next() {
+        if (index == bag.length) {
+            // Fisher-Yates shuffle in place
+            for (int i = bag.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = bag[i];
+                bag[i] = bag[j];
+                bag[j] = t;
+            }
+            index = 0;
+        }
+        return bag[index++];
+    }
+}
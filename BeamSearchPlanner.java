@@ -0,0 +1,464 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+// Lookahead planner for the AI: a beam search over placements of the current piece
+// followed by the preview pieces. The current piece is expanded with every placement it
+// can really reach (PlacementGenerator), the preview pieces with straight drops. Each
+// level expands every surviving board by every rotation x column, keeps the beamWidth
+// best results and moves on to the next piece.
+// All boards and candidate buffers are allocated up front and reused between decisions.
+// In parallel mode the expansion units of a level are spread over a shared fork-join
+// pool; the merge and the node budget stay serial, so both modes return the same move.
+public class BeamSearchPlanner {
+    public static final int DEFAULT_DEPTH = 3; // Current piece + 2 preview pieces
+    public static final int DEFAULT_BEAM_WIDTH = 8;
+    // Placements evaluated per decision. A full search at the default depth and width scores about
+    // 520 on a typical board and up to ~590, so this trims the tail of the last level only.
+    public static final int DEFAULT_NODE_BUDGET = 480;
+
+    // Candidate slots per rotation. Straight drops give one landing spot per column; reachable
+    // placements add a few tucks under overhangs, anything beyond this is dropped (BFS order,
+    // so the placements with the shortest paths are kept).
+    private static final int UNIT_CAPACITY = 4 * Board.WIDTH;
+
+    private final int maxDepth;
+    private final int beamWidth;
+    private final int nodeBudget;
+    private final boolean parallel;
+    private EvaluationWeights weights = EvaluationWeights.DEFAULT; // Swap only between searches
+
+    // Pool shared by every parallel planner, created on first use
+    private static ForkJoinPool searchPool;
+
+    // Parallel mode only: one private board per expansion unit, since the rotations
+    // of one beam node are expanded at the same time, and the share of the node budget
+    // each unit may use
+    private Board[] unitBoards;
+    private int[] unitLimit;
+
+    // Boards of the level being expanded and of the next level, swapped after each level
+    private Board[] beamBoards;
+    private Board[] nextBoards;
+    private int[] beamLines; // Lines cleared along the path to each beam node
+    private int[] nextLines;
+    private int[] beamRootMove; // Packed root placement each beam node descends from
+    private int[] nextRootMove;
+    private int beamCount;
+
+    // Candidate placements. Every expansion unit (beam node x rotation) owns a fixed
+    // slot range of UNIT_CAPACITY entries starting at unit * UNIT_CAPACITY.
+    private final double[] candidateScore;
+    private final int[] candidateLines;
+    private final int[] candidateX;
+    private final int[] candidateY;
+    private final long[] candidateHash; // Zobrist hash of the board after the placement
+    private final int[] unitCount;
+
+    // Best candidates of the current level, best first
+    private final int[] selected;
+    private final double[] selectedScore;
+    private int selectedCount;
+
+    // Boards already in the beam this level, so two placement orders that reach the same board
+    // don't take up two beam slots
+    private final TranspositionTable transpositions = new TranspositionTable();
+    private int transpositionsSkipped;
+
+    // Reachable placements of the current piece; also supplies the input path of the best move
+    private final PlacementGenerator rootPlacements = new PlacementGenerator();
+
+    private int nodesEvaluated;
+    private int bestRotation;
+    private int bestX;
+    private int bestY;
+
+    public BeamSearchPlanner() {
+        this(DEFAULT_DEPTH, DEFAULT_BEAM_WIDTH, DEFAULT_NODE_BUDGET, false);
+    }
+
+    public BeamSearchPlanner(int maxDepth, int beamWidth, int nodeBudget, boolean parallel) {
+        this.parallel = parallel;
+        this.maxDepth = Math.max(1, maxDepth);
+        this.beamWidth = Math.max(1, beamWidth);
+        this.nodeBudget = Math.max(1, nodeBudget);
+
+        beamBoards = new Board[this.beamWidth];
+        nextBoards = new Board[this.beamWidth];
+        for (int i = 0; i < this.beamWidth; i++) {
+            beamBoards[i] = new Board();
+            nextBoards[i] = new Board();
+        }
+        beamLines = new int[this.beamWidth];
+        nextLines = new int[this.beamWidth];
+        beamRootMove = new int[this.beamWidth];
+        nextRootMove = new int[this.beamWidth];
+
+        int slots = this.beamWidth * PieceRotations.ROTATIONS * UNIT_CAPACITY;
+        candidateScore = new double[slots];
+        candidateLines = new int[slots];
+        candidateX = new int[slots];
+        candidateY = new int[slots];
+        candidateHash = new long[slots];
+        unitCount = new int[this.beamWidth * PieceRotations.ROTATIONS];
+
+        if (parallel) {
+            unitBoards = new Board[this.beamWidth * PieceRotations.ROTATIONS];
+            unitLimit = new int[unitBoards.length];
+            for (int i = 0; i < unitBoards.length; i++) {
+                unitBoards[i] = new Board();
+            }
+        }
+
+        selected = new int[this.beamWidth];
+        selectedScore = new double[this.beamWidth];
+    }
+
+    // Plans a move for pieces[0] as it spawns on the given board, looking ahead through
+    // pieces[1..pieceCount-1]. Returns false if the first piece cannot be placed anywhere.
+    public boolean plan(Board root, int[] pieces, int pieceCount) {
+        int spawnY = pieces[0] == 0 ? Board.BUFFER_HEIGHT + 1 : Board.BUFFER_HEIGHT; // Same as Piece
+        return plan(root, pieces, pieceCount, (Board.WIDTH / 2) - 1, spawnY, 0);
+    }
+
+    // Same, with pieces[0] currently at (x, y) in the given rotation
+    public boolean plan(Board root, int[] pieces, int pieceCount, int x, int y, int rotation) {
+        int depth = Math.min(maxDepth, pieceCount);
+        beamBoards[0].copyFrom(root);
+        beamLines[0] = 0;
+        beamRootMove[0] = -1;
+        beamCount = 1;
+        nodesEvaluated = 0;
+        transpositionsSkipped = 0;
+        rootPlacements.generate(root, pieces[0], x, y, rotation);
+
+        boolean found = false;
+        for (int level = 0; level < depth; level++) {
+            boolean lastLevel = level == depth - 1;
+            int unitsExpanded = expandLevel(pieces[level], level == 0);
+            transpositions.newGeneration();
+            if (lastLevel) {
+                select(unitsExpanded, 1, -1);
+            } else {
+                select(unitsExpanded, beamWidth, pieces[level + 1]);
+            }
+            if (selectedCount == 0) {
+                break; // Out of budget or nothing fits: keep the best move of the previous level
+            }
+
+            int best = selected[0];
+            int bestUnit = best / UNIT_CAPACITY;
+            int bestMove = level == 0
+                    ? packMove(bestUnit % PieceRotations.ROTATIONS, candidateX[best], candidateY[best])
+                    : beamRootMove[bestUnit / PieceRotations.ROTATIONS];
+            bestRotation = unpackRotation(bestMove);
+            bestX = unpackX(bestMove);
+            bestY = unpackY(bestMove);
+            found = true;
+
+            if (!lastLevel) {
+                advanceBeam(pieces[level], level == 0);
+            }
+        }
+        return found;
+    }
+
+    // Expands the units (beam node x rotation) of a level in order until the node budget runs out;
+    // returns how many units were expanded. The last one may be cut short by the budget.
+    private int expandLevel(int shapeId, boolean rootLevel) {
+        int units = beamCount * PieceRotations.ROTATIONS;
+        int unit = 0;
+        if (!parallel) {
+            while (unit < units && nodesEvaluated < nodeBudget) {
+                int node = unit / PieceRotations.ROTATIONS;
+                nodesEvaluated += expandUnit(node, unit % PieceRotations.ROTATIONS, shapeId,
+                        beamBoards[node], rootLevel, nodeBudget - nodesEvaluated);
+                unit++;
+            }
+            return unit;
+        }
+
+        // Hand out the budget in serial order first, so only the units the serial search would
+        // expand are spread over the pool, each capped at the same number of placements
+        int remaining = nodeBudget - nodesEvaluated;
+        while (unit < units && remaining > 0) {
+            int node = unit / PieceRotations.ROTATIONS;
+            int limit = Math.min(remaining, countUnit(unit % PieceRotations.ROTATIONS, shapeId,
+                    beamBoards[node], rootLevel));
+            unitLimit[unit] = limit;
+            remaining -= limit;
+            unit++;
+        }
+        if (unit > 0) {
+            getSearchPool().invoke(new ExpandTask(shapeId, rootLevel, 0, unit));
+        }
+        for (int i = 0; i < unit; i++) {
+            nodesEvaluated += unitCount[i];
+        }
+        return unit;
+    }
+
+    // Splits a range of expansion units in halves until each task owns a single unit
+    private final class ExpandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int shapeId;
+        private final boolean rootLevel;
+        private final int fromUnit;
+        private final int toUnit;
+
+        ExpandTask(int shapeId, boolean rootLevel, int fromUnit, int toUnit) {
+            this.shapeId = shapeId;
+            this.rootLevel = rootLevel;
+            this.fromUnit = fromUnit;
+            this.toUnit = toUnit;
+        }
+
+        @Override
+        protected void compute() {
+            if (toUnit - fromUnit > 1) {
+                int mid = (fromUnit + toUnit) >>> 1;
+                invokeAll(new ExpandTask(shapeId, rootLevel, fromUnit, mid),
+                        new ExpandTask(shapeId, rootLevel, mid, toUnit));
+                return;
+            }
+            int node = fromUnit / PieceRotations.ROTATIONS;
+            int rotationIndex = fromUnit % PieceRotations.ROTATIONS;
+            Board board = unitBoards[fromUnit];
+            board.copyFrom(beamBoards[node]);
+            expandUnit(node, rotationIndex, shapeId, board, rootLevel, unitLimit[fromUnit]);
+        }
+    }
+
+    private static synchronized ForkJoinPool getSearchPool() {
+        if (searchPool == null) {
+            searchPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("ai-search-" + thread.getPoolIndex());
+                return thread; // Pool threads are daemons, they never keep the game alive
+            }, null, false);
+        }
+        return searchPool;
+    }
+
+    // Scores up to limit placements of one rotation on a copy of one beam node's board: every
+    // reachable placement for the current piece, straight drops for the preview pieces.
+    // The board is left exactly as it was found.
+    private int expandUnit(int node, int rotationIndex, int shapeId, Board board, boolean rootLevel,
+            int limit) {
+        int unit = node * PieceRotations.ROTATIONS + rotationIndex;
+        int slot = unit * UNIT_CAPACITY;
+        int count = 0;
+        int max = Math.min(limit, UNIT_CAPACITY);
+        PieceRotations.Rotation rotation = PieceRotations.get(shapeId, rotationIndex);
+
+        if (rootLevel) {
+            for (int p = 0; p < rootPlacements.getPlacementCount() && count < max; p++) {
+                if (rootPlacements.getPlacementRotation(p) == rotationIndex) {
+                    scoreCandidate(board, rotation, node, rootPlacements.getPlacementX(p),
+                            rootPlacements.getPlacementY(p), slot + count);
+                    count++;
+                }
+            }
+        } else if (shapeId != PieceRotations.O_PIECE || rotationIndex == 0) {
+            // All four O rotations are identical, only the first is worth scoring
+            int spawnY = Board.BUFFER_HEIGHT;
+            int endX = Board.WIDTH - rotation.getMaxX();
+            for (int x = -rotation.getMinX(); x < endX && count < max; x++) {
+                if (board.collides(rotation, x, spawnY)) {
+                    continue; // Column is blocked at spawn height
+                }
+                int y = spawnY;
+                while (!board.collides(rotation, x, y + 1)) {
+                    y++;
+                }
+                scoreCandidate(board, rotation, node, x, y, slot + count);
+                count++;
+            }
+        }
+        unitCount[unit] = count;
+        return count;
+    }
+
+    // Number of placements expandUnit would score for one rotation without a limit, found
+    // without placing anything
+    private int countUnit(int rotationIndex, int shapeId, Board board, boolean rootLevel) {
+        int count = 0;
+        if (rootLevel) {
+            for (int p = 0; p < rootPlacements.getPlacementCount(); p++) {
+                if (rootPlacements.getPlacementRotation(p) == rotationIndex) {
+                    count++;
+                }
+            }
+        } else if (shapeId != PieceRotations.O_PIECE || rotationIndex == 0) {
+            PieceRotations.Rotation rotation = PieceRotations.get(shapeId, rotationIndex);
+            for (int x = -rotation.getMinX(); x < Board.WIDTH - rotation.getMaxX(); x++) {
+                if (!board.collides(rotation, x, Board.BUFFER_HEIGHT)) {
+                    count++;
+                }
+            }
+        }
+        return Math.min(count, UNIT_CAPACITY);
+    }
+
+    private void scoreCandidate(Board board, PieceRotations.Rotation rotation, int node, int x, int y,
+            int candidate) {
+        long clearedRows = board.placeAndClear(rotation, x, y);
+        int lines = beamLines[node] + Long.bitCount(clearedRows);
+        candidateScore[candidate] = AIController.evaluateBoard(board, lines, weights);
+        candidateHash[candidate] = board.getHash();
+        board.undoPlaceAndClear(rotation, x, y, clearedRows);
+
+        candidateLines[candidate] = lines;
+        candidateX[candidate] = x;
+        candidateY[candidate] = y;
+    }
+
+    // Keeps the best `keep` candidates of the first `units` units. Ties go to the earlier
+    // candidate, so the result only depends on the slot layout, not on evaluation order.
+    // With a next piece given, each board enters the beam at most once: a candidate whose board
+    // this level already produced with at least the same score is dropped as a transposition,
+    // and a better one replaces the earlier candidate in the selection.
+    private void select(int units, int keep, int nextPiece) {
+        selectedCount = 0;
+        for (int unit = 0; unit < units; unit++) {
+            int slot = unit * UNIT_CAPACITY;
+            for (int i = 0; i < unitCount[unit]; i++) {
+                double score = candidateScore[slot + i];
+                if (selectedCount == keep && score <= selectedScore[keep - 1]) {
+                    continue;
+                }
+                if (nextPiece >= 0 && isTransposition(slot + i, score, nextPiece)) {
+                    transpositionsSkipped++;
+                    continue;
+                }
+                int pos = selectedCount < keep ? selectedCount++ : keep - 1;
+                while (pos > 0 && score > selectedScore[pos - 1]) {
+                    selected[pos] = selected[pos - 1];
+                    selectedScore[pos] = selectedScore[pos - 1];
+                    pos--;
+                }
+                selected[pos] = slot + i;
+                selectedScore[pos] = score;
+            }
+        }
+    }
+
+    // True if this level already produced the candidate's board with at least the same score.
+    // Otherwise records the candidate and, if a worse path to the same board is still in the
+    // selection, removes it there.
+    private boolean isTransposition(int candidate, double score, int nextPiece) {
+        long key = TranspositionTable.key(candidateHash[candidate], nextPiece, TranspositionTable.NO_PIECE);
+        int entry = transpositions.probe(key);
+        if (entry >= 0 && transpositions.getSlotGeneration(entry) == transpositions.getGeneration()) {
+            if (transpositions.getScore(entry) >= score) {
+                return true;
+            }
+            for (int k = 0; k < selectedCount; k++) {
+                if (candidateHash[selected[k]] == candidateHash[candidate]) {
+                    System.arraycopy(selected, k + 1, selected, k, selectedCount - k - 1);
+                    System.arraycopy(selectedScore, k + 1, selectedScore, k, selectedCount - k - 1);
+                    selectedCount--;
+                    transpositionsSkipped++;
+                    break;
+                }
+            }
+        }
+        transpositions.store(key, score);
+        return false;
+    }
+
+    // Builds the boards for the selected candidates and makes them the new beam
+    private void advanceBeam(int shapeId, boolean rootLevel) {
+        for (int k = 0; k < selectedCount; k++) {
+            int candidate = selected[k];
+            int unit = candidate / UNIT_CAPACITY;
+            int parent = unit / PieceRotations.ROTATIONS;
+            int rotationIndex = unit % PieceRotations.ROTATIONS;
+
+            nextBoards[k].copyFrom(beamBoards[parent]);
+            nextBoards[k].placeAndClear(PieceRotations.get(shapeId, rotationIndex),
+                    candidateX[candidate], candidateY[candidate]);
+            nextLines[k] = candidateLines[candidate];
+            nextRootMove[k] = rootLevel
+                    ? packMove(rotationIndex, candidateX[candidate], candidateY[candidate])
+                    : beamRootMove[parent];
+        }
+
+        Board[] boards = beamBoards;
+        beamBoards = nextBoards;
+        nextBoards = boards;
+        int[] lines = beamLines;
+        beamLines = nextLines;
+        nextLines = lines;
+        int[] moves = beamRootMove;
+        beamRootMove = nextRootMove;
+        nextRootMove = moves;
+        beamCount = selectedCount;
+    }
+
+    // Root placement packed into one int: rotation | x (offset so it stays positive) | y
+    private static int packMove(int rotation, int x, int y) {
+        return (rotation << 16) | ((x + 8) << 8) | y;
+    }
+
+    private static int unpackRotation(int move) {
+        return move >>> 16;
+    }
+
+    private static int unpackX(int move) {
+        return ((move >>> 8) & 0xFF) - 8;
+    }
+
+    private static int unpackY(int move) {
+        return move & 0xFF;
+    }
+
+    // Results of the last plan() call
+    public int getBestRotation() {
+        return bestRotation;
+    }
+
+    public int getBestX() {
+        return bestX;
+    }
+
+    public int getBestY() {
+        return bestY;
+    }
+
+    // Writes the input path from the start position to the best move into path (sized
+    // PlacementGenerator.MAX_PATH) and returns its length, or -1 if there is no best move
+    public int getBestPath(byte[] path) {
+        int placement = rootPlacements.findPlacement(bestX, bestY, bestRotation);
+        return placement < 0 ? -1 : rootPlacements.getPath(placement, path);
+    }
+
+    public int getNodesEvaluated() {
+        return nodesEvaluated;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getTranspositionsSkipped() {
+        return transpositionsSkipped;
+    }
+
+    public void setWeights(EvaluationWeights weights) {
+        this.weights = weights;
+    }
+
+    public EvaluationWeights getWeights() {
+        return weights;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositions;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+}
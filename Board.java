@@ -1,42 +1,102 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 public class Board {
     public static final int WIDTH = 10;
     public static final int VISIBLE_HEIGHT = 20; // Standard visible playfield height
     public static final int BUFFER_HEIGHT = 20; // Buffer zone above visible area
-    public static final int TOTAL_HEIGHT = VISIBLE_HEIGHT + BUFFER_HEIGHT;
+    public static final int TOTAL_HEIGHT = VISIBLE_HEIGHT + BUFFER_HEIGHT; // At most 64, see columns
     public static final int GARBAGE_TILE_ID = 8; // Identifier for garbage blocks
+    public static final int FULL_ROW = (1 << WIDTH) - 1; // Row mask with every column filled
 
-    private int[][] grid;
-    private List<ScorePopup> scorePopups;
-    private List<LevelUpPopup> levelUpPopups;
-    private AssetManager assetManager;
+    // Bitboard: one occupancy mask per row, bit x is set when column x is filled.
+    // Collision and full-row checks only ever look at this array.
+    private int[] rows;
+    // Colour plane (row-major, one byte per cell), only needed for rendering
+    private byte[] colors;
 
-    public Board(AssetManager assetManager) {
-        grid = new int[WIDTH][TOTAL_HEIGHT];
+    // Feature cache for the AI, kept in step with rows on every mutation so all queries are O(1).
+    // columns[x] has bit y set when (x, y) is filled, which gives height and holes per column
+    // straight from numberOfTrailingZeros/bitCount.
+    private long[] columns;
+    private int[] columnHeights; // Height measured from the bottom (0 = empty column)
+    private int[] columnHoles; // Empty cells below the top block of the column
+    private int aggregateHeight;
+    private int totalHoles;
+    private int bumpiness; // Sum of height differences between neighbouring columns
+    // Bumped by every change to the live board (lock, line clear, garbage, reset) so a snapshot
+    // can tell whether it is still current. The simulation-only place/undo helpers leave it alone.
+    private long version;
+
+    // Zobrist hash of the occupancy (colours are ignored), kept up to date by every mutation.
+    // Each cell has a random key; the keys of a row are pre-combined per 5-column half so a whole
+    // row mask hashes with two lookups. An empty board hashes to 0.
+    private long hash;
+    private static final long[][] ZOBRIST_LO = new long[TOTAL_HEIGHT][32]; // columns 0-4
+    private static final long[][] ZOBRIST_HI = new long[TOTAL_HEIGHT][32]; // columns 5-9
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x7E7A15L); // Fixed seed: hashes are stable between runs
+        for (int y = 0; y < TOTAL_HEIGHT; y++) {
+            long[] cellKeys = new long[WIDTH];
+            for (int x = 0; x < WIDTH; x++) {
+                cellKeys[x] = random.nextLong();
+            }
+            for (int m = 1; m < 32; m++) {
+                int bit = Integer.numberOfTrailingZeros(m);
+                ZOBRIST_LO[y][m] = ZOBRIST_LO[y][m & (m - 1)] ^ cellKeys[bit];
+                ZOBRIST_HI[y][m] = ZOBRIST_HI[y][m & (m - 1)] ^ cellKeys[5 + bit];
+            }
+        }
+    }
+
+    // Pure game state: no sounds, popups or rendering, so boards also work in headless simulations
+    public Board() {
+        rows = new int[TOTAL_HEIGHT];
+        colors = new byte[WIDTH * TOTAL_HEIGHT];
+        columns = new long[WIDTH];
+        columnHeights = new int[WIDTH];
+        columnHoles = new int[WIDTH];
         clearBoard();
-        scorePopups = new ArrayList<>();
-        levelUpPopups = new ArrayList<>();
-        this.assetManager = assetManager;
     }
 
         // Copy constructor for simulation
     public Board(Board original) {
-        this.grid = new int[WIDTH][TOTAL_HEIGHT];
-        for (int x = 0; x < WIDTH; x++) {
-            for (int y = 0; y < TOTAL_HEIGHT; y++) {
-                this.grid[x][y] = original.grid[x][y];
-            }
-        }
+        this.rows = original.rows.clone();
+        this.colors = original.colors.clone();
+        this.columns = original.columns.clone();
+        this.columnHeights = original.columnHeights.clone();
+        this.columnHoles = original.columnHoles.clone();
+        this.aggregateHeight = original.aggregateHeight;
+        this.totalHoles = original.totalHoles;
+        this.bumpiness = original.bumpiness;
+        this.hash = original.hash;
+    }
+
+    // Copies another board's occupancy into this one without allocating.
+    // The colour plane is left alone: scratch boards used for simulation are never rendered.
+    public void copyFrom(Board other) {
+        System.arraycopy(other.rows, 0, rows, 0, TOTAL_HEIGHT);
+        System.arraycopy(other.columns, 0, columns, 0, WIDTH);
+        System.arraycopy(other.columnHeights, 0, columnHeights, 0, WIDTH);
+        System.arraycopy(other.columnHoles, 0, columnHoles, 0, WIDTH);
+        aggregateHeight = other.aggregateHeight;
+        totalHoles = other.totalHoles;
+        bumpiness = other.bumpiness;
+        hash = other.hash;
     }
 
     public void clearBoard() {
-        for (int x = 0; x < WIDTH; x++) {
-            for (int y = 0; y < TOTAL_HEIGHT; y++) {
-                grid[x][y] = 0;
-            }
-        }
+        Arrays.fill(rows, 0);
+        Arrays.fill(colors, (byte) 0);
+        Arrays.fill(columns, 0L);
+        Arrays.fill(columnHeights, 0);
+        Arrays.fill(columnHoles, 0);
+        aggregateHeight = 0;
+        totalHoles = 0;
+        bumpiness = 0;
+        hash = 0;
+        version++;
     }
 
     // Method to check if a position is within bounds
@@ -49,62 +109,233 @@ public class Board {
         if (x < 0 || x >= WIDTH || y < 0 || y >= TOTAL_HEIGHT) {
             return true;
         }
-        return grid[x][y] != 0;
+        return (rows[y] & (1 << x)) != 0;
+    }
+
+    // Checks if a piece rotation at origin (x, y) leaves the board or overlaps a filled cell.
+    // Out-of-bounds is decided by the rotation's extents, overlap by one AND per piece row.
+    public boolean collides(PieceRotations.Rotation rotation, int x, int y) {
+        int left = x + rotation.minX;
+        int top = y + rotation.minY;
+        if (left < 0 || x + rotation.maxX >= WIDTH || top < 0 || y + rotation.maxY >= TOTAL_HEIGHT) {
+            return true;
+        }
+        int[] masks = rotation.rowMasks;
+        for (int j = 0; j < masks.length; j++) {
+            if ((rows[top + j] & (masks[j] << left)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Occupancy mask of a single row (bit x = column x)
+    public int getRowMask(int y) {
+        return rows[y];
+    }
+
+    public boolean isRowFull(int y) {
+        return rows[y] == FULL_ROW;
+    }
+
+    // Colour of a cell for rendering (0 = empty)
+    public int getColor(int x, int y) {
+        return colors[y * WIDTH + x];
     }
 
     // Method to place a piece on the board (when it locks)
     public void placePiece(int x, int y, int color) {
         if (x >= 0 && x < WIDTH && y >= 0 && y < TOTAL_HEIGHT) {
-            grid[x][y] = color;
+            setCell(x, y, color);
+        }
+    }
+
+    // Writes a cell into both the occupancy mask and the colour plane
+    private void setCell(int x, int y, int color) {
+        int before = rows[y];
+        if (color != 0) {
+            rows[y] |= 1 << x;
+            columns[x] |= 1L << y;
+        } else {
+            rows[y] &= ~(1 << x);
+            columns[x] &= ~(1L << y);
+        }
+        colors[y * WIDTH + x] = (byte) color;
+        if (rows[y] != before) {
+            hash ^= rowKey(y, 1 << x);
         }
+        updateColumnFeatures(x);
+        version++;
     }
 
-    public int checkAndClearCompletedRows(ScoreManager scoreManager, int currentLevel) {
+    // Re-derives height and holes of one column from its mask and patches the running totals
+    private void updateColumnFeatures(int x) {
+        long column = columns[x];
+        int height = column == 0 ? 0 : TOTAL_HEIGHT - Long.numberOfTrailingZeros(column);
+        int holes = height - Long.bitCount(column);
+        int oldHeight = columnHeights[x];
+
+        aggregateHeight += height - oldHeight;
+        totalHoles += holes - columnHoles[x];
+        if (x > 0) {
+            bumpiness += Math.abs(height - columnHeights[x - 1]) - Math.abs(oldHeight - columnHeights[x - 1]);
+        }
+        if (x < WIDTH - 1) {
+            bumpiness += Math.abs(height - columnHeights[x + 1]) - Math.abs(oldHeight - columnHeights[x + 1]);
+        }
+        columnHeights[x] = height;
+        columnHoles[x] = holes;
+    }
+
+    // Removes every full row and returns how many there were; scoring is up to the caller
+    public int clearCompletedRows() {
         int linesCleared = 0;
 
         for (int y = TOTAL_HEIGHT - 1; y >= 0; y--) {
-            boolean rowComplete = true;
-            for (int x = 0; x < WIDTH; x++) {
-                if (grid[x][y] == 0) {
-                    rowComplete = false;
-                    break;
-                }
-            }
-            if (rowComplete) {
+            if (rows[y] == FULL_ROW) {
                 linesCleared++;
                 clearRow(y);
                 y++; // re‐check this same index after shifting everything down
             }
         }
-        if (linesCleared > 0) {
-            // Play appropriate line clear sound
-            switch(linesCleared) {
-                case 1: assetManager.playSound(assetManager.singleLineSound); break;
-                case 2: assetManager.playSound(assetManager.doubleLineSound); break;
-                case 3: assetManager.playSound(assetManager.tripleLineSound); break;
-                case 4: assetManager.playSound(assetManager.tetrisSound); break;
-            }
-            int scoreValue = ScoreManager.LINE_CLEAR_POINTS[linesCleared] * currentLevel;
-            addScorePopup(linesCleared, scoreValue);
-            scoreManager.addScoreForLines(linesCleared, currentLevel);
-        }
-        
         return linesCleared;
     }
 
     private void clearRow(int rowY) {
-        for (int y = rowY; y > 0; y--) {
-            for (int x = 0; x < WIDTH; x++) {
-                grid[x][y] = grid[x][y - 1];
+        // Shift every row above rowY down by one, then empty the top row
+        hash ^= rowsHash(rowY + 1);
+        System.arraycopy(rows, 0, rows, 1, rowY);
+        System.arraycopy(colors, 0, colors, WIDTH, rowY * WIDTH);
+        rows[0] = 0;
+        Arrays.fill(colors, 0, WIDTH, (byte) 0);
+        hash ^= rowsHash(rowY + 1);
+
+        // Same shift on the column masks: bits above rowY move down one, rowY itself drops out
+        long above = (1L << rowY) - 1;
+        for (int x = 0; x < WIDTH; x++) {
+            long column = columns[x];
+            columns[x] = (column & ~(above | (1L << rowY))) | ((column & above) << 1);
+            updateColumnFeatures(x);
+        }
+        version++;
+    }
+
+    // Simulation only: ORs a piece rotation into the occupancy rows (no colour, no popups).
+    // The caller must have checked the position with collides() first so undoPlace can XOR it back out.
+    public void place(PieceRotations.Rotation rotation, int x, int y) {
+        int left = x + rotation.minX;
+        int top = y + rotation.minY;
+        int[] masks = rotation.rowMasks;
+        int touched = 0;
+        for (int j = 0; j < masks.length; j++) {
+            int bits = masks[j] << left;
+            rows[top + j] |= bits;
+            hash ^= rowKey(top + j, bits);
+            touched |= bits;
+            for (int m = bits; m != 0; m &= m - 1) {
+                columns[Integer.numberOfTrailingZeros(m)] |= 1L << (top + j);
             }
         }
-        for (int x = 0; x < WIDTH; x++) {
-            grid[x][0] = 0;
+        for (int m = touched; m != 0; m &= m - 1) {
+            updateColumnFeatures(Integer.numberOfTrailingZeros(m));
         }
     }
 
-    public int[][] getGrid() {
-        return grid;
+    // Reverts a place() with the same arguments
+    public void undoPlace(PieceRotations.Rotation rotation, int x, int y) {
+        int left = x + rotation.minX;
+        int top = y + rotation.minY;
+        int[] masks = rotation.rowMasks;
+        int touched = 0;
+        for (int j = 0; j < masks.length; j++) {
+            int bits = masks[j] << left;
+            rows[top + j] ^= bits;
+            hash ^= rowKey(top + j, bits);
+            touched |= bits;
+            for (int m = bits; m != 0; m &= m - 1) {
+                columns[Integer.numberOfTrailingZeros(m)] ^= 1L << (top + j);
+            }
+        }
+        for (int m = touched; m != 0; m &= m - 1) {
+            updateColumnFeatures(Integer.numberOfTrailingZeros(m));
+        }
+    }
+
+    // Simulation only: places a piece and clears every row it completes in one pass.
+    // Returns the cleared-row mask (bit y = row y before the shift); the board is left in the
+    // post-clear state, and undoPlaceAndClear with the same mask restores it exactly.
+    public long placeAndClear(PieceRotations.Rotation rotation, int x, int y) {
+        place(rotation, x, y);
+
+        // Only the rows the piece touches can have become full
+        long cleared = 0;
+        int top = y + rotation.minY;
+        for (int j = 0; j < rotation.rowMasks.length; j++) {
+            if (rows[top + j] == FULL_ROW) {
+                cleared |= 1L << (top + j);
+            }
+        }
+        if (cleared == 0) {
+            return 0;
+        }
+
+        // Compact the rows from the lowest cleared row upwards, then empty what's left at the top
+        int lowest = 63 - Long.numberOfLeadingZeros(cleared);
+        hash ^= rowsHash(lowest + 1);
+        int write = lowest;
+        for (int read = lowest; read >= 0; read--) {
+            if ((cleared & (1L << read)) == 0) {
+                rows[write--] = rows[read];
+            }
+        }
+        while (write >= 0) {
+            rows[write--] = 0;
+        }
+        hash ^= rowsHash(lowest + 1);
+
+        // Drop the same bits from every column, top-most cleared row first so lower indices stay valid
+        for (int col = 0; col < WIDTH; col++) {
+            long column = columns[col];
+            for (long m = cleared; m != 0; m &= m - 1) {
+                int rowY = Long.numberOfTrailingZeros(m);
+                long above = (1L << rowY) - 1;
+                column = (column & ~(above | (1L << rowY))) | ((column & above) << 1);
+            }
+            columns[col] = column;
+            updateColumnFeatures(col);
+        }
+        return cleared;
+    }
+
+    // Reverts placeAndClear: re-inserts the full rows given by clearedRows, then removes the piece
+    public void undoPlaceAndClear(PieceRotations.Rotation rotation, int x, int y, long clearedRows) {
+        if (clearedRows != 0) {
+            // Row i (pre-clear) sits at i + (cleared rows below it); walking upwards never reads a row
+            // that has already been written
+            int lowest = 63 - Long.numberOfLeadingZeros(clearedRows);
+            hash ^= rowsHash(lowest + 1);
+            for (int i = 0; i <= lowest; i++) {
+                if ((clearedRows & (1L << i)) != 0) {
+                    rows[i] = FULL_ROW;
+                } else {
+                    rows[i] = rows[i + Long.bitCount(clearedRows >>> (i + 1))];
+                }
+            }
+            hash ^= rowsHash(lowest + 1);
+
+            for (int col = 0; col < WIDTH; col++) {
+                long column = columns[col];
+                for (int rowY = lowest; rowY >= 0; rowY--) {
+                    if ((clearedRows & (1L << rowY)) != 0) {
+                        long above = (1L << rowY) - 1;
+                        column = ((column >>> 1) & above) | (1L << rowY) | (column & ~(above | (1L << rowY)));
+                    }
+                }
+                columns[col] = column;
+                updateColumnFeatures(col);
+            }
+        }
+        undoPlace(rotation, x, y);
     }
 
     // Method to add a piece directly to the board grid for simulation purposes
@@ -118,125 +349,83 @@ public class Board {
             int x = pieceX + block[0];
             int y = pieceY + block[1];
             if (isWithinBounds(x, y)) {
-                grid[x][y] = pieceColor;
+                setCell(x, y, pieceColor);
             }
         }
     }
 
-    // Counts how many lines *would be* cleared if the piece was placed.
-    // This version simulates the clear and counts, but does not alter the board state.
-    public int countPotentialLineClears(Piece piecePlaced) {
-        // This is a simplified version. A more accurate one would:
-        // 1. Create a temporary board copy.
-        // 2. Add the piece to the temp board.
-        // 3. Run the actual clear line logic on the temp board and count.
-        // For now, this just checks rows occupied by the piece blocks.
-        // This is a placeholder and needs a more robust implementation for good AI.
-        
-        // For a quick estimate, let's check rows that the piece occupies
-        boolean[] rowHasBlock = new boolean[TOTAL_HEIGHT];
-        for(int[] block : piecePlaced.getShape()){
-            int y = piecePlaced.getY() + block[1];
-            if(y >=0 && y < TOTAL_HEIGHT) rowHasBlock[y] = true;
-        }
+    public int getAggregateHeight() {
+        return aggregateHeight;
+    }
 
-        int linesCleared = 0;
-        for (int y = 0; y < TOTAL_HEIGHT; y++) {
-            if (!rowHasBlock[y]) continue; // Only check rows the piece might complete
+    public int countHoles() {
+        return totalHoles;
+    }
 
-            boolean rowComplete = true;
-            for (int x = 0; x < WIDTH; x++) {
-                 // Check if grid[x][y] is empty OR if it's part of the currently placed piece
-                boolean partOfPlacedPiece = false;
-                for(int[] block : piecePlaced.getShape()){ 
-                    if (piecePlaced.getX() + block[0] == x && piecePlaced.getY() + block[1] == y) {
-                        partOfPlacedPiece = true;
-                        break;
-                    }
-                }
-                if (grid[x][y] == 0 && !partOfPlacedPiece) { // If cell is empty AND not part of piece to be placed
-                    rowComplete = false;
-                    break;
-                }
-            }
-            if (rowComplete) {
-                linesCleared++;
-            }
-        }
-        return linesCleared;
+    public int getBumpiness() {
+        return bumpiness;
     }
 
-    public int getAggregateHeight() {
-        int totalHeight = 0;
-        for (int x = 0; x < WIDTH; x++) {
-            for (int y = 0; y < TOTAL_HEIGHT; y++) {
-                if (grid[x][y] != 0) {
-                    totalHeight += (TOTAL_HEIGHT - y); // Add height from top
-                    break; // Move to next column
-                }
-            }
-        }
-        return totalHeight;
+    // Height of a column measured from the bottom of the board (0 = empty column)
+    public int getColumnHeight(int x) {
+        return columnHeights[x];
     }
 
-    public int countHoles() {
-        int holes = 0;
-        for (int x = 0; x < WIDTH; x++) {
-            boolean blockFound = false;
-            for (int y = 0; y < TOTAL_HEIGHT; y++) {
-                if (grid[x][y] != 0) {
-                    blockFound = true;
-                } else if (blockFound && grid[x][y] == 0) {
-                    holes++;
-                }
-            }
-        }
-        return holes;
+    public int getColumnHoles(int x) {
+        return columnHoles[x];
     }
 
-    public int getBumpiness() {
-        int bumpiness = 0;
-        int[] columnHeights = new int[WIDTH];
-        for (int x = 0; x < WIDTH; x++) {
-            columnHeights[x] = 0; // Default to max height (empty column)
-            for (int y = 0; y < TOTAL_HEIGHT; y++) {
-                if (grid[x][y] != 0) {
-                    columnHeights[x] = TOTAL_HEIGHT - y;
-                    break;
-                }
-            }
-        }
+    public long getVersion() {
+        return version;
+    }
+
+    // Zobrist hash of the occupied cells; equal boards always hash equal
+    public long getHash() {
+        return hash;
+    }
 
-        for (int x = 0; x < WIDTH - 1; x++) {
-            bumpiness += Math.abs(columnHeights[x] - columnHeights[x+1]);
+    private static long rowKey(int y, int mask) {
+        return ZOBRIST_LO[y][mask & 31] ^ ZOBRIST_HI[y][mask >>> 5];
+    }
+
+    // Combined key of rows 0 .. toRow-1 as they are right now
+    private long rowsHash(int toRow) {
+        long h = 0;
+        for (int y = 0; y < toRow; y++) {
+            h ^= rowKey(y, rows[y]);
         }
-        return bumpiness;
+        return h;
     }
 
     // Method to add garbage lines at the bottom of the board
     // Returns true if adding lines results in a top-out (game over for this board)
-    public boolean addGarbageLines(int numLinesToAdd) {
+    // Hole columns are drawn from random, so a seeded stream gives reproducible garbage
+    public boolean addGarbageLines(int numLinesToAdd, SplittableRandom random) {
         if (numLinesToAdd <= 0) return false;
 
         int effectiveNumLinesToAdd = Math.min(numLinesToAdd, TOTAL_HEIGHT);
 
-        for (int y = 0; y < TOTAL_HEIGHT - effectiveNumLinesToAdd; y++) {
-            for (int x = 0; x < WIDTH; x++) {
-                grid[x][y] = grid[x][y + effectiveNumLinesToAdd];
-                if (grid[x][y] != 0 && y < BUFFER_HEIGHT) {
-                    return true;
-                }
+        // Top-out if anything would be pushed up into the buffer zone; the visible stack is left as is
+        for (int y = 0; y < BUFFER_HEIGHT && y + effectiveNumLinesToAdd < TOTAL_HEIGHT; y++) {
+            if (rows[y + effectiveNumLinesToAdd] != 0) {
+                return true;
             }
         }
 
+        int keptRows = TOTAL_HEIGHT - effectiveNumLinesToAdd;
+        System.arraycopy(rows, effectiveNumLinesToAdd, rows, 0, keptRows);
+        System.arraycopy(colors, effectiveNumLinesToAdd * WIDTH, colors, 0, keptRows * WIDTH);
+        hash = rowsHash(TOTAL_HEIGHT); // Every row moved; the garbage rows below are hashed by setCell
+        for (int x = 0; x < WIDTH; x++) {
+            columns[x] >>>= effectiveNumLinesToAdd;
+            updateColumnFeatures(x);
+        }
+        version++;
+
         for (int lineY = TOTAL_HEIGHT - effectiveNumLinesToAdd; lineY < TOTAL_HEIGHT; lineY++) {
-            int holeX = (int) (Math.random() * WIDTH);
+            int holeX = random.nextInt(WIDTH);
             for (int x = 0; x < WIDTH; x++) {
-                if (x == holeX) {
-                    grid[x][lineY] = 0;
-                } else {
-                    grid[x][lineY] = GARBAGE_TILE_ID;
-                }
+                setCell(x, lineY, x == holeX ? 0 : GARBAGE_TILE_ID);
             }
         }
         return false;
@@ -252,35 +441,4 @@ public class Board {
         }
         return true;
     }
-public void updateScorePopups(double dt) {
-        scorePopups.removeIf(popup -> !popup.update(dt));
-        levelUpPopups.removeIf(popup -> !popup.update(dt));
-    }
-
-    public void onLevelUp(int newLevel) {
-        assetManager.playSound(assetManager.levelUpSound);
-        // Create popup at middle of the board
-        int popupY = (VISIBLE_HEIGHT / 2) * Renderer.TILE_SIZE;
-        levelUpPopups.add(new LevelUpPopup(newLevel, popupY));
-    }
-
-    public List<ScorePopup> getScorePopups() {
-        return scorePopups;
-    }
-
-    public List<LevelUpPopup> getLevelUpPopups() {
-        return levelUpPopups;
-    }
-
-    public void addScorePopup(int linesCleared, int scoreValue) {
-        String type = "";
-        switch(linesCleared) {
-            case 1: type = "Single"; break;
-            case 2: type = "Double"; break;
-            case 3: type = "Triple"; break;
-            case 4: type = "Tetris!"; break;
-        }
-        int popupY = (int)(VISIBLE_HEIGHT * 0.75 * Renderer.TILE_SIZE);
-        scorePopups.add(new ScorePopup(type, scoreValue, popupY));
-    }
 }
@@ -0,0 +1,24 @@
+import java.util.SplittableRandom;
+
+// The NES randomizer: roll one of eight, and if that is the "reroll" slot or repeats the
+// previous piece, roll once more among the seven real pieces and keep whatever comes up
+public class ClassicRandomizer implements Randomizer {
+    private SplittableRandom random;
+    private int last;
+
+    @Override
+    public void reset(long seed) {
+        random = new SplittableRandom(seed);
+        last = -1;
+    }
+
+    @Override
+    public int next() {
+        int roll = random.nextInt(PIECE_TYPES + 1);
+        if (roll == PIECE_TYPES || roll == last) {
+            roll = random.nextInt(PIECE_TYPES);
+        }
+        last = roll;
+        return roll;
+    }
+}
@@ -0,0 +1,82 @@
+// Scales the cosmetic effects (line-clear particles, row-flash glow, popup animation) to hold a
+// target frame rate. Measured frame times are smoothed with an exponential moving average; when
+// the average runs over the target frame time the budget is cut multiplicatively, and while
+// frames arrive on time it creeps back up. A burst of load therefore sheds effects within a few
+// frames, while recovery is slow enough not to oscillate.
+public class EffectsBudget {
+    public static final double MIN_LEVEL = 0.05; // Never fewer than 5% of the full particles
+    public static final double GLOW_MIN_LEVEL = 0.5; // Row flashes lose their glow below this
+    public static final double POPUP_ANIMATION_MIN_LEVEL = 0.25; // Popups stop scaling below this
+
+    private static final double SMOOTHING = 0.2; // Weight of the newest frame in the average
+    private static final double SLOW = 1.15; // Average/target ratio treated as missing the target
+    private static final double ON_TIME = 1.05; // Ratio at or below which frames are on time
+    private static final double CUT = 0.7; // Level multiplier when missing the target
+    private static final double RAISE = 0.01; // Level added per on-time frame
+    private static final int CUT_COOLDOWN = 10; // Frames after a cut before the next, so it can take effect
+    private static final double MAX_SAMPLE = 0.25; // Longer frames (stalls, window drags) are clamped
+
+    private final double targetFrameTime;
+    private double averageFrameTime;
+    private double level = 1.0;
+    private int cooldown;
+
+    public EffectsBudget(int targetFrameRate) {
+        if (targetFrameRate <= 0) {
+            throw new IllegalArgumentException("Target frame rate must be positive: " + targetFrameRate);
+        }
+        this.targetFrameTime = 1.0 / targetFrameRate;
+        this.averageFrameTime = targetFrameTime;
+    }
+
+    // Feeds the real time the last frame took, in seconds
+    public void recordFrame(double frameTime) {
+        if (frameTime <= 0) {
+            return; // First frame, nothing measured yet
+        }
+        averageFrameTime += (Math.min(frameTime, MAX_SAMPLE) - averageFrameTime) * SMOOTHING;
+        double ratio = averageFrameTime / targetFrameTime;
+        if (cooldown > 0) {
+            cooldown--;
+        } else if (ratio > SLOW && level > MIN_LEVEL) {
+            level = Math.max(MIN_LEVEL, level * CUT);
+            cooldown = CUT_COOLDOWN;
+        }
+        if (ratio <= ON_TIME) {
+            level = Math.min(1.0, level + RAISE);
+        }
+    }
+
+    // Amount of an effect to produce out of its full-quality amount, never less than one
+    public int scale(int fullAmount) {
+        return Math.max(1, (int) Math.round(fullAmount * level));
+    }
+
+    public boolean allowsGlow() {
+        return level >= GLOW_MIN_LEVEL;
+    }
+
+    public boolean allowsPopupAnimation() {
+        return level >= POPUP_ANIMATION_MIN_LEVEL;
+    }
+
+    // Current budget, from MIN_LEVEL (minimal effects) to 1 (full quality)
+    public double getLevel() {
+        return level;
+    }
+
+    // Smoothed frame time in seconds
+    public double getAverageFrameTime() {
+        return averageFrameTime;
+    }
+
+    public double getAverageFrameRate() {
+        return 1.0 / averageFrameTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("effects %.0f%% at %.1f fps (target %.0f)", level * 100, getAverageFrameRate(),
+                1.0 / targetFrameTime);
+    }
+}
@@ -0,0 +1,65 @@
+import java.util.Locale;
+
+// Weight vector for AIController.evaluateBoard: one weight per board feature. Immutable, so a
+// planner thread can keep using one while the game or a tuner swaps in another.
+public final class EvaluationWeights {
+    public static final int COUNT = 4;
+
+    // Hand-tuned starting point (the weights the AI always used)
+    public static final EvaluationWeights DEFAULT = new EvaluationWeights(-0.510066, 0.760666, -0.35663, -0.184483);
+
+    private final double height; // Per cell of aggregate column height
+    private final double lines; // Per line cleared along the searched path
+    private final double holes; // Per empty cell with a filled cell above it
+    private final double bumpiness; // Per cell of height difference between neighbouring columns
+
+    public EvaluationWeights(double height, double lines, double holes, double bumpiness) {
+        this.height = height;
+        this.lines = lines;
+        this.holes = holes;
+        this.bumpiness = bumpiness;
+    }
+
+    // Order: height, lines, holes, bumpiness
+    public static EvaluationWeights fromArray(double[] weights) {
+        if (weights.length != COUNT) {
+            throw new IllegalArgumentException("Expected " + COUNT + " weights, got " + weights.length);
+        }
+        return new EvaluationWeights(weights[0], weights[1], weights[2], weights[3]);
+    }
+
+    // Parses the format written by toString()
+    public static EvaluationWeights parse(String text) {
+        String[] parts = text.trim().split("[,\\s]+");
+        double[] weights = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            weights[i] = Double.parseDouble(parts[i]);
+        }
+        return fromArray(weights);
+    }
+
+    public double[] toArray() {
+        return new double[] { height, lines, holes, bumpiness };
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    public double getLines() {
+        return lines;
+    }
+
+    public double getHoles() {
+        return holes;
+    }
+
+    public double getBumpiness() {
+        return bumpiness;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%.6f %.6f %.6f %.6f", height, lines, holes, bumpiness);
+    }
+}
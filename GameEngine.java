@@ -12,6 +12,8 @@ import java.io.*;
 
 import java.util.Stack;
 import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.imageio.*;
 import javax.sound.sampled.*;
@@ -22,7 +24,10 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 	// -------------------------------------------------------
 	JFrame mFrame;
 	GamePanel mPanel;
-	int mWidth, mHeight;
+	// Canvas that replaces mPanel when active rendering is on
+	Canvas mCanvas;
+	// Written on the Swing thread by setWindowSize and read by the render thread in active mode
+	volatile int mWidth, mHeight;
 	Graphics2D mGraphics;
 	boolean initialised = false;
 
@@ -63,6 +68,96 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 		return passed;
 	}
 
+	// -------------------------------------------------------
+	// Fixed timestep
+	// -------------------------------------------------------
+	// Length of one logic tick in seconds, 0 = one variable update per frame
+	double mFixedStep = 0;
+	// Simulated time owed to update() that has not been ticked yet
+	double mAccumulator = 0;
+	// How far the current frame is between the last tick and the next (0..1)
+	double mInterpolation = 1;
+	// Simulated seconds per real second
+	double mTimeScale = 1;
+	// Ticks allowed per frame before the backlog is dropped, so a stall can't snowball
+	int mMaxTicksPerFrame = 10;
+	// Nanosecond timestamp of the previous frame
+	long mLastFrameNanos = 0;
+	// Real seconds the last frame took
+	double mFrameTime = 0;
+
+	// Runs update() in fixed ticks of 1/hz seconds, independent of the frame rate.
+	// hz <= 0 goes back to one update per frame with the measured frame time.
+	public void setFixedTimestep(int hz) {
+		// Store the tick length
+		mFixedStep = hz > 0 ? 1.0 / hz : 0;
+		// Start with an empty accumulator
+		mAccumulator = 0;
+		mInterpolation = 1;
+	}
+
+	// Speeds up (or slows down) simulated time, e.g. to run tests faster than real time
+	public void setTimeScale(double scale) {
+		mTimeScale = scale;
+	}
+
+	// Fraction of a tick the current frame is past the last update, for drawing moving
+	// things between their previous and current positions. Always 1 without a fixed timestep.
+	public double getInterpolation() {
+		return mInterpolation;
+	}
+
+	// Seconds since the previous frame, measured with the nanosecond clock
+	double measureFrameTime() {
+		// Get the current time
+		long now = System.nanoTime();
+		// The first frame has no previous one
+		if (mLastFrameNanos == 0) {
+			mLastFrameNanos = now;
+		}
+		// Work out the time passed
+		double passed = (now - mLastFrameNanos) / 1e9;
+		mLastFrameNanos = now;
+		return passed;
+	}
+
+	// Real time between the last two frames in seconds, for watching the achieved frame rate
+	public double getFrameTime() {
+		return mFrameTime;
+	}
+
+	// Advances the game by one frame of frameTime real seconds
+	void advanceFrame(double frameTime) {
+		// Remember it for getFrameTime()
+		mFrameTime = frameTime;
+		// Sounds asked for from here on belong to a new frame
+		if (mMixer != null) {
+			mMixer.nextFrame();
+		}
+		// Variable timestep: one update with the frame time
+		if (mFixedStep <= 0) {
+			update(frameTime * mTimeScale);
+			return;
+		}
+
+		// Add the frame's simulated time to the accumulator
+		mAccumulator += frameTime * mTimeScale;
+		// Tick while a whole step is owed (a sped-up clock is allowed proportionally more ticks)
+		int ticks = 0;
+		int maxTicks = (int) Math.ceil(mMaxTicksPerFrame * Math.max(1, mTimeScale));
+		while (mAccumulator >= mFixedStep && ticks < maxTicks) {
+			update(mFixedStep);
+			mAccumulator -= mFixedStep;
+			ticks++;
+		}
+		// Too far behind: drop the rest of the backlog instead of spiralling
+		if (mAccumulator >= mFixedStep) {
+			mAccumulator = mAccumulator % mFixedStep;
+		}
+		// Remaining fraction of a step drives the interpolation
+		mInterpolation = mAccumulator / mFixedStep;
+	}
+
 	// -------------------------------------------------------
 	// Functions for setting up the window
 	// -------------------------------------------------------
@@ -91,6 +186,11 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 				.addKeyEventDispatcher(new KeyEventDispatcher() {
 					@Override
 					public boolean dispatchKeyEvent(KeyEvent e) {
+						// With active rendering the game runs on the render thread, so hand the event over
+						if (mActiveRendering) {
+							mKeyEvents.add(e);
+							return false;
+						}
 						switch (e.getID()) {
 							case KeyEvent.KEY_PRESSED:
 								GameEngine.this.keyPressed(e);
@@ -124,6 +224,9 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 				mHeight = height;
 				mFrame.setSize(width + insets.left + insets.right, height + insets.top + insets.bottom);
 				mPanel.setSize(width, height);
+				if (mCanvas != null) {
+					mCanvas.setSize(width, height);
+				}
 			}
 		});
 	}
@@ -207,17 +310,83 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 		@Override
 		public void actionPerformed(ActionEvent e) {
 			// Determine the time step
-			double passedTime = measureTime();
-			double dt = passedTime / 1000.;
+			double dt = measureFrameTime();
 
-			// Update the Game
-			update(dt);
+			// Update the Game (in fixed ticks if a fixed timestep is set)
+			advanceFrame(dt);
 
-			// Tell the Game to draw
-			mPanel.repaint();
+			// Tell the Game to draw (only what changed, with damage tracking on)
+			if (!mDamageTracking) {
+				mPanel.repaint();
+			} else if (takeDamage()) {
+				mPanel.repaint(mDirtyX0, mDirtyY0, mDirtyX1 - mDirtyX0, mDirtyY1 - mDirtyY0);
+			}
 		}
 	});
 
+	// -------------------------------------------------------
+	// Damage tracking
+	// -------------------------------------------------------
+	// Repaint only the parts of the window findDamage() marks, and nothing when it marks nothing
+	boolean mDamageTracking = false;
+	// Union of the regions marked since the last repaint
+	boolean mDirty = false;
+	int mDirtyX0, mDirtyY0, mDirtyX1, mDirtyY1;
+
+	// Turns damage tracking on or off; off repaints the whole window every frame
+	public void setDamageTracking(boolean tracking) {
+		mDamageTracking = tracking;
+		markAllDirty();
+	}
+
+	// Marks the region at (x,y) with size (w,h) as needing a repaint
+	public void markDirty(int x, int y, int w, int h) {
+		// Ignore empty regions
+		if (w <= 0 || h <= 0) {
+			return;
+		}
+		// Grow the union to include it
+		if (!mDirty) {
+			mDirtyX0 = x;
+			mDirtyY0 = y;
+			mDirtyX1 = x + w;
+			mDirtyY1 = y + h;
+			mDirty = true;
+		} else {
+			mDirtyX0 = Math.min(mDirtyX0, x);
+			mDirtyY0 = Math.min(mDirtyY0, y);
+			mDirtyX1 = Math.max(mDirtyX1, x + w);
+			mDirtyY1 = Math.max(mDirtyY1, y + h);
+		}
+	}
+
+	// Marks the whole window as needing a repaint
+	public void markAllDirty() {
+		markDirty(0, 0, Math.max(1, mWidth), Math.max(1, mHeight));
+	}
+
+	// Called once per frame with damage tracking on, after the update, to markDirty() whatever
+	// has changed on screen since the last frame. Games that don't override it repaint everything.
+	public void findDamage() {
+		markAllDirty();
+	}
+
+	// Collects this frame's damage; true if anything needs repainting. The region stays in
+	// mDirtyX0..mDirtyY1 until the next call.
+	boolean takeDamage() {
+		// Ask the game what changed
+		findDamage();
+		// Clip the union to the window
+		mDirtyX0 = Math.max(mDirtyX0, 0);
+		mDirtyY0 = Math.max(mDirtyY0, 0);
+		mDirtyX1 = Math.min(mDirtyX1, mWidth);
+		mDirtyY1 = Math.min(mDirtyY1, mHeight);
+		boolean damaged = mDirty && mDirtyX1 > mDirtyX0 && mDirtyY1 > mDirtyY0;
+		// Start the next frame clean
+		mDirty = false;
+		return damaged;
+	}
+
 	// The GameEngine main Panel
 	protected class GamePanel extends JPanel {
 		private static final long serialVersionUID = 1L;
@@ -225,28 +394,218 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 		// This gets called any time the Operating System
 		// tells the program to paint itself
 		public void paintComponent(Graphics graphics) {
-			// Get the graphics object
-			mGraphics = (Graphics2D) graphics;
+			// Paint the game into the panel's graphics
+			paintFrame((Graphics2D) graphics);
+		}
+	}
+
+	// -------------------------------------------------------
+	// Active rendering
+	// -------------------------------------------------------
+	// Draw from a dedicated thread into a page-flipped Canvas instead of Swing repaints
+	boolean mActiveRendering = false;
+	// Key events queued by the EDT for the render thread, which owns the game state
+	final ConcurrentLinkedQueue<KeyEvent> mKeyEvents = new ConcurrentLinkedQueue<KeyEvent>();
+	Thread mRenderThread;
+	volatile boolean mRunning = false;
+	// Set on the Swing thread when the OS exposes the window; the render thread turns it into
+	// markAllDirty(), since the damage region belongs to the render thread
+	volatile boolean mForceRedraw = false;
+
+	// Selects the active rendering back end; call before createGame.
+	// In this mode update(), paintComponent() and the key callbacks all run on the render
+	// thread (mouse callbacks still arrive on the Swing thread).
+	public void setActiveRendering(boolean active) {
+		mActiveRendering = active;
+	}
+
+	public boolean isActiveRendering() {
+		return mActiveRendering;
+	}
+
+	// Swaps the JPanel for a Canvas with a two-page BufferStrategy (page flipping where the
+	// platform supports it). Runs on the Swing thread.
+	void setupCanvas() {
+		// Create the canvas at the current size. We draw every frame ourselves, so an OS repaint
+		// request (the window was uncovered, restored or resized) only asks the render thread
+		// to redraw the whole frame, even if the game reports no damage.
+		mCanvas = new Canvas() {
+			private static final long serialVersionUID = 1L;
 
-			// Reset all transforms
-			mTransforms.clear();
-			mTransforms.push(mGraphics.getTransform());
+			@Override
+			public void paint(Graphics g) {
+				mForceRedraw = true;
+			}
 
-			// Rendering settings
-			mGraphics.setRenderingHints(
-					new RenderingHints(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON));
+			@Override
+			public void update(Graphics g) {
+				mForceRedraw = true;
+			}
+		};
+		mCanvas.setSize(mWidth, mHeight);
+		mCanvas.addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentResized(ComponentEvent e) {
+				mForceRedraw = true;
+			}
 
-			// Paint the game
-			if (initialised) {
-				GameEngine.this.paintComponent();
+			@Override
+			public void componentShown(ComponentEvent e) {
+				mForceRedraw = true;
+			}
+		});
+		mFrame.addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowDeiconified(WindowEvent e) {
+				mForceRedraw = true;
+			}
+		});
+		mFrame.setIgnoreRepaint(true);
+		mCanvas.addMouseListener(this);
+		mCanvas.addMouseMotionListener(this);
+
+		// Replace the panel
+		mFrame.remove(mPanel);
+		mFrame.add(mCanvas);
+		mFrame.validate();
+
+		// Two pages: draw into the back one while the front one is shown
+		mCanvas.createBufferStrategy(2);
+	}
+
+	// Render thread: update and draw, paced to the framerate with sleep plus a short spin
+	void renderLoop(int framerate) {
+		// Nanoseconds per frame
+		long period = 1000000000L / Math.max(1, framerate);
+		// When the next frame is due
+		long next = System.nanoTime();
+		BufferStrategy strategy = mCanvas.getBufferStrategy();
+
+		while (mRunning) {
+			// Input first, so it reaches this frame's update
+			drainKeyEvents();
+
+			// Update the Game (in fixed ticks if a fixed timestep is set)
+			advanceFrame(measureFrameTime());
+
+			// Redraw everything after the OS exposed the window
+			if (mForceRedraw) {
+				mForceRedraw = false;
+				markAllDirty();
+			}
+
+			// With damage tracking, frames where nothing changed are neither drawn nor flipped.
+			// The back page is a frame or more out of date, so a damaged frame is drawn whole.
+			boolean draw = !mDamageTracking || takeDamage() || strategy.contentsLost();
+			if (draw) {
+				drawFrame(strategy);
+			}
+
+			// Wait for the next frame
+			next += period;
+			long now = System.nanoTime();
+			if (now - next > period) {
+				// More than a frame behind: start pacing again from now
+				next = now;
+				continue;
+			}
+			// Sleep while there is more than a millisecond to go, then spin (idle frames just sleep)
+			long spin = draw ? 1000000L : 0L;
+			while (next - now > spin) {
+				LockSupport.parkNanos(next - now - spin);
+				now = System.nanoTime();
+			}
+			while (System.nanoTime() < next) {
+				Thread.onSpinWait();
 			}
 		}
 	}
 
+	// Draws a whole frame into the back page and flips it to the screen
+	void drawFrame(BufferStrategy strategy) {
+		// Draw and flip, redrawing if the buffer contents were lost on the way
+		do {
+			do {
+				Graphics2D graphics = (Graphics2D) strategy.getDrawGraphics();
+				try {
+					paintFrame(graphics);
+				} finally {
+					graphics.dispose();
+				}
+			} while (strategy.contentsRestored());
+			strategy.show();
+		} while (strategy.contentsLost());
+		// Push the frame out now rather than when the pipeline gets round to it
+		Toolkit.getDefaultToolkit().sync();
+	}
+
+	// Hands queued key events to the game in the order they arrived
+	void drainKeyEvents() {
+		KeyEvent e;
+		while ((e = mKeyEvents.poll()) != null) {
+			switch (e.getID()) {
+				case KeyEvent.KEY_PRESSED:
+					keyPressed(e);
+					break;
+				case KeyEvent.KEY_RELEASED:
+					keyReleased(e);
+					break;
+				case KeyEvent.KEY_TYPED:
+					keyTyped(e);
+					break;
+				default:
+					break;
+			}
+		}
+	}
+
+	// Shared by both back ends: prepares the graphics object and paints the game
+	void paintFrame(Graphics2D graphics) {
+		// Get the graphics object
+		mGraphics = graphics;
+
+		// Reset all transforms
+		mTransforms.clear();
+		mTransforms.push(mGraphics.getTransform());
+
+		// Rendering settings
+		mGraphics.setRenderingHints(RENDERING_HINTS);
+
+		// Paint the game
+		if (initialised) {
+			GameEngine.this.paintComponent();
+		}
+	}
+
 	// Initialises and starts the game loop with the given framerate.
 	public void gameLoop(int framerate) {
 		initialised = true; // assume init has been called or won't be called
 
+		if (mActiveRendering) {
+			// Set up the canvas on the Swing thread (after the window it goes into)
+			try {
+				SwingUtilities.invokeAndWait(new Runnable() {
+					@Override
+					public void run() {
+						setupCanvas();
+					}
+				});
+			} catch (Exception e) {
+				throw new IllegalStateException("Could not set up active rendering", e);
+			}
+
+			// Start the render thread
+			mRunning = true;
+			mRenderThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					renderLoop(framerate);
+				}
+			}, "render");
+			mRenderThread.start();
+			return;
+		}
+
 		timer.setFramerate(framerate);
 		timer.setRepeats(true);
 
@@ -335,6 +694,21 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 	Color yellow = Color.YELLOW;
 	Color white = Color.WHITE;
 
+	// Colours, fonts, strokes and text layouts are interned here, so drawing allocates nothing
+	RenderCache mCache = new RenderCache();
+	// Shapes reused by the drawing functions (Graphics2D does not keep them)
+	Line2D.Double mLine = new Line2D.Double();
+	Rectangle2D.Double mRectangle = new Rectangle2D.Double();
+	Ellipse2D.Double mEllipse = new Ellipse2D.Double();
+	// Settings every frame is painted with
+	static final RenderingHints RENDERING_HINTS = new RenderingHints(RenderingHints.KEY_ANTIALIASING,
+			RenderingHints.VALUE_ANTIALIAS_ON);
+
+	// Returns the cache the drawing functions use, for colours and text the game draws itself
+	public RenderCache getRenderCache() {
+		return mCache;
+	}
+
 	// Changes the background Color to the color c
 	public void changeBackgroundColor(Color c) {
 		// Set background colour
@@ -366,7 +740,7 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 		}
 
 		// Set background colour
-		mGraphics.setBackground(new Color(red, green, blue));
+		mGraphics.setBackground(mCache.color(red, green, blue));
 	}
 
 	// Clears the background, makes the whole window whatever the background color
@@ -376,6 +750,16 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 		mGraphics.clearRect(0, 0, width, height);
 	}
 
+	// Redirects drawing to another graphics context, e.g. an off-screen image, and
+	// returns the current one so it can be put back
+	public Graphics2D setGraphics(Graphics2D graphics) {
+		// Remember the current context
+		Graphics2D previous = mGraphics;
+		// Switch to the new one
+		mGraphics = graphics;
+		return previous;
+	}
+
 	// Changes the drawing Color to the color c
 	public void changeColor(Color c) {
 		// Set colour
@@ -407,75 +791,83 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 		}
 
 		// Set colour
-		mGraphics.setColor(new Color(red, green, blue));
+		mGraphics.setColor(mCache.color(red, green, blue));
 	}
 
 	// Draws a line from (x1,y2) to (x2,y2)
 	void drawLine(double x1, double y1, double x2, double y2) {
 		// Draw a Line
-		mGraphics.draw(new Line2D.Double(x1, y1, x2, y2));
+		mLine.setLine(x1, y1, x2, y2);
+		mGraphics.draw(mLine);
 	}
 
 	// Draws a line from (x1,y2) to (x2,y2) with width l
 	void drawLine(double x1, double y1, double x2, double y2, double l) {
 		// Set the stroke
-		mGraphics.setStroke(new BasicStroke((float) l));
+		mGraphics.setStroke(mCache.stroke((float) l));
 
 		// Draw a Line
-		mGraphics.draw(new Line2D.Double(x1, y1, x2, y2));
+		mLine.setLine(x1, y1, x2, y2);
+		mGraphics.draw(mLine);
 
 		// Reset the stroke
-		mGraphics.setStroke(new BasicStroke(1.0f));
+		mGraphics.setStroke(mCache.stroke(1.0f));
 	}
 
 	// This function draws a rectangle at (x,y) with width and height (w,h)
 	void drawRectangle(double x, double y, double w, double h) {
 		// Draw a Rectangle
-		mGraphics.draw(new Rectangle2D.Double(x, y, w, h));
+		mRectangle.setRect(x, y, w, h);
+		mGraphics.draw(mRectangle);
 	}
 
 	// This function draws a rectangle at (x,y) with width and height (w,h)
 	// with a line of width l
 	void drawRectangle(double x, double y, double w, double h, double l) {
 		// Set the stroke
-		mGraphics.setStroke(new BasicStroke((float) l));
+		mGraphics.setStroke(mCache.stroke((float) l));
 
 		// Draw a Rectangle
-		mGraphics.draw(new Rectangle2D.Double(x, y, w, h));
+		mRectangle.setRect(x, y, w, h);
+		mGraphics.draw(mRectangle);
 
 		// Reset the stroke
-		mGraphics.setStroke(new BasicStroke(1.0f));
+		mGraphics.setStroke(mCache.stroke(1.0f));
 	}
 
 	// This function fills in a rectangle at (x,y) with width and height (w,h)
 	void drawSolidRectangle(double x, double y, double w, double h) {
 		// Fill a Rectangle
-		mGraphics.fill(new Rectangle2D.Double(x, y, w, h));
+		mRectangle.setRect(x, y, w, h);
+		mGraphics.fill(mRectangle);
 	}
 
 	// This function draws a circle at (x,y) with radius
 	void drawCircle(double x, double y, double radius) {
 		// Draw a Circle
-		mGraphics.draw(new Ellipse2D.Double(x - radius, y - radius, radius * 2, radius * 2));
+		mEllipse.setFrame(x - radius, y - radius, radius * 2, radius * 2);
+		mGraphics.draw(mEllipse);
 	}
 
 	// This function draws a circle at (x,y) with radius
 	// with a line of width l
 	void drawCircle(double x, double y, double radius, double l) {
 		// Set the stroke
-		mGraphics.setStroke(new BasicStroke((float) l));
+		mGraphics.setStroke(mCache.stroke((float) l));
 
 		// Draw a Circle
-		mGraphics.draw(new Ellipse2D.Double(x - radius, y - radius, radius * 2, radius * 2));
+		mEllipse.setFrame(x - radius, y - radius, radius * 2, radius * 2);
+		mGraphics.draw(mEllipse);
 
 		// Reset the stroke
-		mGraphics.setStroke(new BasicStroke(1.0f));
+		mGraphics.setStroke(mCache.stroke(1.0f));
 	}
 
 	// This function draws a circle at (x,y) with radius
 	void drawSolidCircle(double x, double y, double radius) {
 		// Fill a Circle
-		mGraphics.fill(new Ellipse2D.Double(x - radius, y - radius, radius * 2, radius * 2));
+		mEllipse.setFrame(x - radius, y - radius, radius * 2, radius * 2);
+		mGraphics.fill(mEllipse);
 	}
 
 	// This function draws a polygon
@@ -484,50 +876,55 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 		mGraphics.fill(polygon);
 	}
 
+	// Draws s at (x,y) in font, from a cached glyph layout
+	void drawString(String s, double x, double y, Font font) {
+		// Later getFontMetrics() calls measure in this font
+		mGraphics.setFont(font);
+		// Nothing to lay out
+		if (s.isEmpty()) {
+			return;
+		}
+		mGraphics.drawGlyphVector(mCache.glyphs(font, s, mGraphics.getFontRenderContext()), (int) x, (int) y);
+	}
+
 	// This function draws text on the screen at (x,y)
 	public void drawText(double x, double y, String s) {
 		// Draw text on the screen
-		mGraphics.setFont(new Font("Arial", Font.PLAIN, 40));
-		mGraphics.drawString(s, (int) x, (int) y);
+		drawString(s, x, y, mCache.font("Arial", Font.PLAIN, 40));
 	}
 
 	// This function draws bold text on the screen at (x,y)
 	public void drawBoldText(double x, double y, String s) {
 		// Draw text on the screen
-		mGraphics.setFont(new Font("Arial", Font.BOLD, 40));
-		mGraphics.drawString(s, (int) x, (int) y);
+		drawString(s, x, y, mCache.font("Arial", Font.BOLD, 40));
 	}
 
 	// This function draws text on the screen at (x,y)
 	// with Font (font,size)
 	public void drawText(double x, double y, String s, int size) {
 		// Draw text on the screen
-		mGraphics.setFont(new Font("Arial", Font.PLAIN, size));
-		mGraphics.drawString(s, (int) x, (int) y);
+		drawString(s, x, y, mCache.font("Arial", Font.PLAIN, size));
 	}
 
 	// This function draws bold text on the screen at (x,y)
 	// with Font (font,size)
 	public void drawBoldText(double x, double y, String s, int size) {
 		// Draw text on the screen
-		mGraphics.setFont(new Font("Arial", Font.BOLD, size));
-		mGraphics.drawString(s, (int) x, (int) y);
+		drawString(s, x, y, mCache.font("Arial", Font.BOLD, size));
 	}
 
 	// This function draws text on the screen at (x,y)
 	// with Font (font,size)
 	public void drawText(double x, double y, String s, String font, int size) {
 		// Draw text on the screen
-		mGraphics.setFont(new Font(font, Font.PLAIN, size));
-		mGraphics.drawString(s, (int) x, (int) y);
+		drawString(s, x, y, mCache.font(font, Font.PLAIN, size));
 	}
 
 	// This function draws bold text on the screen at (x,y)
 	// with Font (font,size)
 	public void drawBoldText(double x, double y, String s, String font, int size) {
 		// Draw text on the screen
-		mGraphics.setFont(new Font(font, Font.BOLD, size));
-		mGraphics.drawString(s, (int) x, (int) y);
+		drawString(s, x, y, mCache.font(font, Font.BOLD, size));
 	}
 
 	// -------------------------------------------------------
@@ -615,6 +1012,26 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 		mGraphics.drawImage(image, (int) x, (int) y, (int) w, (int) h, null);
 	}
 
+	// Draws the (w,h) region at (sx,sy) of an image on the screen at position (x,y), unscaled
+	public void drawSubImage(Image image, int sx, int sy, int w, int h, double x, double y) {
+		// Check if image is null
+		if (image == null) {
+			// Print Error message
+			System.out.println("Error: cannot draw null image.\n");
+			return;
+		}
+		// Source and destination are the same size, so this is a plain copy
+		int dx = (int) x;
+		int dy = (int) y;
+		mGraphics.drawImage(image, dx, dy, dx + w, dy + h, sx, sy, sx + w, sy + h, null);
+	}
+
+	// Returns the graphics configuration of the screen the window is on (null when there is no window)
+	public GraphicsConfiguration getGraphicsConfiguration() {
+		// Images created from it share the screen's pixel format
+		return mFrame == null ? null : mFrame.getGraphicsConfiguration();
+	}
+
 	// -------------------------------------------------------
 	// Transform Functions
 	// -------------------------------------------------------
@@ -682,6 +1099,9 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 		// Loop Clip
 		Clip mLoopClip;
 
+		// Id of the sound's voices in the mixer, -1 until registered
+		int mSoundId = -1;
+
 		public Clip getLoopClip() {
 			// return mLoopClip
 			return mLoopClip;
@@ -756,33 +1176,53 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 		return null;
 	}
 
-	// Plays an AudioClip
-	public void playAudio(AudioClip audioClip) {
-		// Check audioClip for null
-		if (audioClip == null) {
-			// Print error message
-			System.out.println("Error: audioClip is null\n");
+	// Loads a sound effect and opens voices Clips for it up front, so that playing it
+	// (up to voices times at once) never has to open an audio line
+	public AudioClip loadAudio(String filename, int voices) {
+		// Load the Audio Clip
+		AudioClip clip = loadAudio(filename);
 
-			// Return
-			return;
+		// Register it with the mixer
+		if (clip != null) {
+			registerAudio(clip, voices);
 		}
 
-		try {
-			// Create a Clip
-			Clip clip = AudioSystem.getClip();
+		// Return Audio Clip
+		return clip;
+	}
+
+	// Mixer that plays sound effects, created with the first sound
+	SoundMixer mMixer = null;
 
-			// Load data
-			clip.open(audioClip.getAudioFormat(), audioClip.getData(), 0, (int) audioClip.getBufferSize());
+	// Returns the sound effect mixer
+	public SoundMixer getSoundMixer() {
+		// Create the mixer if necessary
+		if (mMixer == null) {
+			mMixer = new SoundMixer();
 
-			// Play Clip
-			clip.start();
-		} catch (Exception exception) {
-			// Display Error Message
-			System.out.println("Error playing Audio Clip\n");
+			// Release its audio lines when the program exits
+			Runtime.getRuntime().addShutdownHook(new Thread(mMixer::close));
 		}
+
+		// Return mMixer
+		return mMixer;
+	}
+
+	// Opens voices pooled Clips for an AudioClip in the mixer
+	void registerAudio(AudioClip audioClip, int voices) {
+		// Register the clip's data
+		audioClip.mSoundId = getSoundMixer().register(audioClip.getAudioFormat(), audioClip.getData(),
+				(int) audioClip.getBufferSize(), voices);
 	}
 
-	// Plays an AudioClip with a volume in decibels
+	// Plays an AudioClip
+	public void playAudio(AudioClip audioClip) {
+		// Play at the recorded volume
+		playAudio(audioClip, 0f);
+	}
+
+	// Plays an AudioClip with a volume in decibels. Playback starts on the mixer's thread; the
+	// same clip played again in the same frame is only heard once.
 	public void playAudio(AudioClip audioClip, float volume) {
 		// Check audioClip for null
 		if (audioClip == null) {
@@ -793,25 +1233,13 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 			return;
 		}
 
-		try {
-			// Create a Clip
-			Clip clip = AudioSystem.getClip();
-
-			// Load data
-			clip.open(audioClip.getAudioFormat(), audioClip.getData(), 0, (int) audioClip.getBufferSize());
-
-			// Create Controls
-			FloatControl control = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
-
-			// Set Volume
-			control.setValue(volume);
-
-			// Play Clip
-			clip.start();
-		} catch (Exception exception) {
-			// Display Error Message
-			System.out.println("Error: could not play Audio Clip\n");
+		// Clips loaded without voices get the default number on first play
+		if (audioClip.mSoundId < 0) {
+			registerAudio(audioClip, SoundMixer.DEFAULT_VOICES);
 		}
+
+		// Queue it on the mixer
+		getSoundMixer().play(audioClip.mSoundId, volume);
 	}
 
 	// Starts playing an AudioClip on loop
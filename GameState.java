@@ -13,8 +13,9 @@ public class GameState {
     // Game Mode and Main Menu
     private GameMode currentMode; // Current overall game mode
 
-    private long countdownStartTime;
+    private double countdownElapsed; // Seconds since the countdown started, advanced by updateCountdown
     private int countdownSeconds = 3;
+    private static final double COUNTDOWN_SPEED = 1.5; // Countdown steps per second
 
     public GameState() {
         reset();
@@ -62,13 +63,15 @@ public class GameState {
     public void setShowCountdown(boolean showCountdown) {
         this.showCountdown = showCountdown;
         if (showCountdown) {
-            countdownStartTime = System.currentTimeMillis();
+            countdownElapsed = 0;
         }
     }
 
-    public void updateCountdown() {
+    // Driven by the game's time step rather than the wall clock, so simulated matches count down too
+    public void updateCountdown(double dt) {
         if (showCountdown) {
-            long elapsed = (long) ((System.currentTimeMillis() - countdownStartTime) / (1000 / 1.5));
+            countdownElapsed += dt;
+            long elapsed = (long) (countdownElapsed * COUNTDOWN_SPEED);
             if (elapsed >= countdownSeconds) {
                 showCountdown = false;
             }
@@ -78,7 +81,7 @@ public class GameState {
     public long getCountdownRemaining() {
         if (!showCountdown)
             return 0;
-        long elapsed = (long) ((System.currentTimeMillis() - countdownStartTime) / (1000 / 1.5));
+        long elapsed = (long) (countdownElapsed * COUNTDOWN_SPEED);
         return Math.max(0, countdownSeconds - elapsed);
     }
 
@@ -7,6 +7,9 @@ public class InputHandler {
     private double leftHeldTime = 0, rightHeldTime = 0;
     private boolean leftHeld = false, rightHeld = false;
 
+    // Held soft drop steps at a fixed rate (the old 30 fps frame rate), whatever the logic tick rate
+    private double softDropInterval = 1.0 / 30;
+    private double softDropTime = 0;
     private boolean softDropping = false;
 
     private TetrisGame game; // Reference to the main game logic
@@ -78,8 +81,12 @@ public class InputHandler {
                 rightHeldTime = dasDelay + (rightHeldTime - dasDelay) % arrInterval;
             }
         }
-        if (softDropping && game.getCurrentPiece(playerIndex).moveDown()) {
-            game.getRenderer().getAssetManager().playSound(game.getRenderer().getAssetManager().softDropSound);
+        if (softDropping) {
+            softDropTime += dt;
+            while (softDropTime >= softDropInterval) {
+                softDropTime -= softDropInterval;
+                game.softDropActivePiece(playerIndex);
+            }
         }
     }
 
@@ -109,11 +116,11 @@ public class InputHandler {
             game.moveActivePieceRight(playerIndex);
         } else if (keyCode == keyDown) {
             softDropping = true;
+            softDropTime = 0;
             // Make sure piece exists and is not landed before trying to move it or reset
             // timer
             if (game.getCurrentPiece(playerIndex) != null && !game.getCurrentPiece(playerIndex).isLanded()) {
-                game.getCurrentPiece(playerIndex).moveDown(); // Move one step immediately
-                game.resetFallTimer(playerIndex); // Reset fall timer to reflect soft drop
+                game.moveActivePieceDown(playerIndex); // Move one step immediately, resetting the fall timer
             }
         } else if (keyCode == keyHardDrop) {
             game.hardDropActivePiece(playerIndex);
@@ -137,6 +144,7 @@ public class InputHandler {
             rightHeldTime = 0; // Reset time on release
         } else if (keyCode == keyDown) {
             softDropping = false;
+            softDropTime = 0;
         }
     }
 
@@ -150,5 +158,6 @@ public class InputHandler {
         leftHeldTime = 0;
         rightHeldTime = 0;
         softDropping = false;
+        softDropTime = 0;
     }
 }
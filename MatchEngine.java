@@ -0,0 +1,505 @@
+import java.util.SplittableRandom;
+
+// Game rules for one match, with no Swing, audio or rendering attached: piece spawning, gravity,
+// lock delay, line clears, scoring, hold, garbage and game over for every player. Feed it inputs
+// and a time step; read the state back through the getters and react to what happened through a
+// MatchListener. TetrisGame is the interactive front end, simulations can drive it directly.
+// All randomness comes from the match seed: every player is dealt the same piece sequence and
+// garbage holes come from their own seeded stream, so a seed plus the inputs replays a match
+// (see ReplayRecorder).
+public class MatchEngine {
+    // Event types passed to MatchListener.onMatchEvent; value is 0 unless noted
+    public static final int EVENT_MOVE = 0;
+    public static final int EVENT_MOVE_BLOCKED = 1;
+    public static final int EVENT_ROTATE = 2;
+    public static final int EVENT_ROTATE_BLOCKED = 3;
+    public static final int EVENT_SOFT_DROP = 4;
+    public static final int EVENT_HARD_DROP = 5;
+    public static final int EVENT_HOLD = 6;
+    public static final int EVENT_LOCK = 7;
+    public static final int EVENT_ROW_CLEARED = 8; // value = board row, sent before the row is removed
+    public static final int EVENT_LINES_CLEARED = 9; // value = number of lines
+    public static final int EVENT_SCORE = 10; // value = points, right after EVENT_LINES_CLEARED
+    public static final int EVENT_LEVEL_UP = 11; // value = new level
+    public static final int EVENT_GARBAGE_RECEIVED = 12; // value = lines added to this player's board
+    public static final int EVENT_GAME_OVER = 13;
+    public static final int EVENT_MATCH_OVER = 14; // player = -1
+    public static final int EVENT_SPAWN = 15; // value = piece type
+
+    public static final int NO_HOLD = -1;
+
+    private static final double MAX_DT = 0.1; // Longer steps are clamped so pieces can't tunnel
+    private static final double LOCK_DELAY = 0.5;
+    private static final double SOFT_DROP_FACTOR = 20.0; // Soft drop falls this much faster than gravity
+
+    private static final MatchListener NO_LISTENER = (player, event, value) -> { };
+
+    private final int playerCount;
+    private final Board[] boards;
+    private final Piece[] pieces;
+    private final PieceGenerator[] generators;
+    private final ScoreManager[] scoreManagers;
+    private final GameState[] gameStates; // Game over, pause and countdown per player
+
+    private final double[] fallIntervals;
+    private final double[] fallTimers;
+    private final double[] lockTimers;
+    private final int[] heldPieceTypes;
+    private final boolean[] canHolds;
+    private final boolean[] softDropping;
+
+    private final Randomizer.Type randomizer;
+    private SplittableRandom garbageRandom;
+    private long seed;
+
+    private boolean matchOver;
+    private MatchListener listener = NO_LISTENER;
+    private ReplayRecorder recorder; // Sees every reset, time step and accepted input when set
+
+    public MatchEngine(int playerCount) {
+        this(playerCount, Randomizer.Type.BAG_7);
+    }
+
+    public MatchEngine(int playerCount, Randomizer.Type randomizer) {
+        this.playerCount = playerCount;
+        this.randomizer = randomizer;
+        boards = new Board[playerCount];
+        pieces = new Piece[playerCount];
+        generators = new PieceGenerator[playerCount];
+        scoreManagers = new ScoreManager[playerCount];
+        gameStates = new GameState[playerCount];
+        fallIntervals = new double[playerCount];
+        fallTimers = new double[playerCount];
+        lockTimers = new double[playerCount];
+        heldPieceTypes = new int[playerCount];
+        canHolds = new boolean[playerCount];
+        softDropping = new boolean[playerCount];
+
+        for (int i = 0; i < playerCount; i++) {
+            boards[i] = new Board();
+            generators[i] = new PieceGenerator(randomizer, 0);
+            pieces[i] = new Piece(boards[i], generators[i]);
+            scoreManagers[i] = new ScoreManager();
+            gameStates[i] = new GameState();
+        }
+    }
+
+    public void setListener(MatchListener listener) {
+        this.listener = listener != null ? listener : NO_LISTENER;
+    }
+
+    // Records from the next reset on; null stops recording
+    public void setRecorder(ReplayRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    public ReplayRecorder getRecorder() {
+        return recorder;
+    }
+
+    // Starts (or restarts) the match with a fresh seed
+    public void reset(GameMode mode, boolean countdown) {
+        reset(mode, countdown, System.nanoTime());
+    }
+
+    // Starts (or restarts) the match: empty boards, fresh scores, first pieces and the countdown.
+    // The same seed always deals the same match.
+    public void reset(GameMode mode, boolean countdown, long seed) {
+        if (recorder != null) {
+            recorder.begin(playerCount, randomizer, mode, countdown, seed);
+        }
+        this.seed = seed;
+        SplittableRandom seeds = new SplittableRandom(seed);
+        long pieceSeed = seeds.nextLong();
+        garbageRandom = seeds.split();
+        matchOver = false;
+        for (int i = 0; i < playerCount; i++) {
+            gameStates[i].reset();
+            gameStates[i].setCurrentMode(mode);
+            gameStates[i].setShowCountdown(countdown);
+            scoreManagers[i].reset();
+            boards[i].clearBoard();
+            generators[i].reset(pieceSeed); // Same sequence for every player
+
+            fallTimers[i] = 0;
+            lockTimers[i] = 0;
+            heldPieceTypes[i] = NO_HOLD;
+            canHolds[i] = true;
+            softDropping[i] = false;
+            spawnNewPiece(i);
+        }
+    }
+
+    // Advances countdowns, gravity and lock delay for every player by dt seconds
+    public void update(double dt) {
+        if (recorder != null) {
+            recorder.update(dt);
+        }
+        if (matchOver) {
+            return;
+        }
+        if (dt > MAX_DT) {
+            dt = MAX_DT;
+        }
+
+        for (int i = 0; i < playerCount; i++) {
+            gameStates[i].updateCountdown(dt);
+            if (gameStates[i].isGameOver() || gameStates[i].isPaused() || gameStates[i].isShowCountdown()) {
+                continue;
+            }
+
+            double currentFallSpeed = softDropping[i] ? (fallIntervals[i] / SOFT_DROP_FACTOR) : fallIntervals[i];
+            fallTimers[i] += dt;
+
+            while (fallTimers[i] >= currentFallSpeed) {
+                fallTimers[i] -= currentFallSpeed;
+                if (pieces[i].isLanded()) {
+                    lockTimers[i] += currentFallSpeed;
+                    if (lockTimers[i] >= LOCK_DELAY) {
+                        lockPiece(i);
+                        if (matchOver)
+                            break; // If locking piece caused game over for all, stop.
+                    }
+                } else {
+                    pieces[i].moveDown();
+                    lockTimers[i] = 0;
+                }
+            }
+            if (matchOver)
+                break;
+        }
+    }
+
+    // Countdowns only, for when the front end is paused but the countdown should keep running
+    public void updateCountdowns(double dt) {
+        if (recorder != null) {
+            recorder.countdowns(dt);
+        }
+        for (int i = 0; i < playerCount; i++) {
+            gameStates[i].updateCountdown(dt);
+        }
+    }
+
+    // Inputs. Each returns false if the game isn't accepting input for the player or the move was blocked.
+
+    public boolean moveLeft(int player) {
+        if (!acceptsInput(player))
+            return false;
+        record(player, Replay.MOVE_LEFT);
+        boolean moved = pieces[player].moveLeft();
+        listener.onMatchEvent(player, moved ? EVENT_MOVE : EVENT_MOVE_BLOCKED, 0);
+        if (pieces[player].isLanded()) {
+            lockTimers[player] = 0;
+        }
+        return moved;
+    }
+
+    public boolean moveRight(int player) {
+        if (!acceptsInput(player))
+            return false;
+        record(player, Replay.MOVE_RIGHT);
+        boolean moved = pieces[player].moveRight();
+        listener.onMatchEvent(player, moved ? EVENT_MOVE : EVENT_MOVE_BLOCKED, 0);
+        if (pieces[player].isLanded()) {
+            lockTimers[player] = 0;
+        }
+        return moved;
+    }
+
+    // One cell down without locking, restarting the gravity timer
+    public boolean moveDown(int player) {
+        if (!acceptsInput(player))
+            return false;
+        record(player, Replay.MOVE_DOWN);
+        boolean moved = pieces[player].moveDown();
+        if (moved) {
+            fallTimers[player] = 0;
+            lockTimers[player] = 0;
+        }
+        return moved;
+    }
+
+    // Extra step taken every frame while soft drop is held
+    public boolean softDropStep(int player) {
+        if (!acceptsInput(player))
+            return false;
+        record(player, Replay.SOFT_DROP_STEP);
+        boolean moved = pieces[player].moveDown();
+        if (moved) {
+            listener.onMatchEvent(player, EVENT_SOFT_DROP, 0);
+        }
+        return moved;
+    }
+
+    public boolean rotate(int player, boolean clockwise) {
+        if (!acceptsInput(player))
+            return false;
+        record(player, clockwise ? Replay.ROTATE_CW : Replay.ROTATE_CCW);
+        Piece piece = pieces[player];
+        boolean rotated = clockwise ? piece.rotateClockwise() : piece.rotateCounterClockwise();
+        if (rotated) {
+            listener.onMatchEvent(player, EVENT_ROTATE, 0);
+        } else if (piece.getPieceType() != PieceRotations.O_PIECE) { // O silently refuses to rotate
+            listener.onMatchEvent(player, EVENT_ROTATE_BLOCKED, 0);
+        }
+        if (piece.isLanded()) {
+            lockTimers[player] = 0;
+        }
+        return rotated;
+    }
+
+    public boolean hardDrop(int player) {
+        if (!acceptsInput(player))
+            return false;
+        record(player, Replay.HARD_DROP);
+        while (!pieces[player].isLanded()) {
+            pieces[player].moveDown();
+        }
+        listener.onMatchEvent(player, EVENT_HARD_DROP, 0);
+        lockPiece(player);
+        return true;
+    }
+
+    public boolean hold(int player) {
+        if (!acceptsInput(player) || !canHolds[player]) {
+            return false;
+        }
+        record(player, Replay.HOLD);
+        int currentType = pieces[player].getPieceType();
+        if (heldPieceTypes[player] == NO_HOLD) {
+            heldPieceTypes[player] = currentType;
+            spawnNewPiece(player);
+        } else {
+            int tempType = heldPieceTypes[player];
+            heldPieceTypes[player] = currentType;
+            pieces[player].spawnSpecificPiece(tempType);
+            if (pieces[player].checkSpawnCollision()) {
+                setGameOver(player);
+            }
+        }
+        listener.onMatchEvent(player, EVENT_HOLD, 0);
+        canHolds[player] = false;
+        fallTimers[player] = 0;
+        lockTimers[player] = 0;
+        return true;
+    }
+
+    // Held soft drop makes gravity SOFT_DROP_FACTOR times faster
+    public void setSoftDropping(int player, boolean softDropping) {
+        if (this.softDropping[player] != softDropping) {
+            record(player, softDropping ? Replay.SOFT_DROP_ON : Replay.SOFT_DROP_OFF);
+            this.softDropping[player] = softDropping;
+        }
+    }
+
+    // Shows the countdown again before play resumes, e.g. after a pause
+    public void startCountdown(int player) {
+        record(player, Replay.COUNTDOWN);
+        gameStates[player].setShowCountdown(true);
+    }
+
+    private void record(int player, int action) {
+        if (recorder != null) {
+            recorder.input(player, action);
+        }
+    }
+
+    private boolean acceptsInput(int player) {
+        return !matchOver && player >= 0 && player < playerCount && !gameStates[player].isGameOver();
+    }
+
+    private void spawnNewPiece(int player) {
+        updateFallInterval(player);
+        pieces[player].spawnNewPiece();
+        listener.onMatchEvent(player, EVENT_SPAWN, pieces[player].getPieceType());
+        if (pieces[player].checkSpawnCollision()) {
+            setGameOver(player);
+        }
+        fallTimers[player] = 0;
+        lockTimers[player] = 0;
+        canHolds[player] = true;
+    }
+
+    private void lockPiece(int player) {
+        Board board = boards[player];
+        pieces[player].lockPiece();
+        listener.onMatchEvent(player, EVENT_LOCK, 0);
+        updateFallInterval(player);
+
+        // Report the full visible rows while they are still in place, then clear them
+        for (int y = Board.BUFFER_HEIGHT; y < Board.TOTAL_HEIGHT; y++) {
+            if (board.isRowFull(y)) {
+                listener.onMatchEvent(player, EVENT_ROW_CLEARED, y);
+            }
+        }
+        int linesCleared = board.clearCompletedRows();
+
+        if (linesCleared > 0) {
+            ScoreManager scoreManager = scoreManagers[player];
+            int level = scoreManager.getLevel();
+            listener.onMatchEvent(player, EVENT_LINES_CLEARED, linesCleared);
+            if (linesCleared < ScoreManager.LINE_CLEAR_POINTS.length) {
+                listener.onMatchEvent(player, EVENT_SCORE, ScoreManager.LINE_CLEAR_POINTS[linesCleared] * level);
+            }
+            scoreManager.addScoreForLines(linesCleared, level);
+            if (scoreManager.getLevel() > level) {
+                listener.onMatchEvent(player, EVENT_LEVEL_UP, scoreManager.getLevel());
+            }
+            if (playerCount > 1) {
+                sendGarbage(player, garbageFor(linesCleared));
+            }
+        }
+
+        if (!matchOver) {
+            spawnNewPiece(player);
+        }
+    }
+
+    static int garbageFor(int linesCleared) {
+        switch (linesCleared) {
+            case 1:
+                return 0;
+            case 2:
+                return 1;
+            case 3:
+                return 2;
+            case 4:
+                return 4;
+            default:
+                return (linesCleared > 4) ? (4 + (linesCleared - 4) * 2) : 0;
+        }
+    }
+
+    private void sendGarbage(int fromPlayer, int lines) {
+        if (lines <= 0) {
+            return;
+        }
+        for (int opponent = 0; opponent < playerCount; opponent++) {
+            if (opponent == fromPlayer || gameStates[opponent].isGameOver()) {
+                continue;
+            }
+            boolean toppedOut = boards[opponent].addGarbageLines(lines, garbageRandom);
+            listener.onMatchEvent(opponent, EVENT_GARBAGE_RECEIVED, lines);
+            if (toppedOut) {
+                setGameOver(opponent);
+            }
+        }
+    }
+
+    private void setGameOver(int player) {
+        gameStates[player].setGameOver(true);
+        listener.onMatchEvent(player, EVENT_GAME_OVER, 0);
+        checkMatchOver();
+    }
+
+    private void checkMatchOver() {
+        int playersGameOver = 0;
+        for (int i = 0; i < playerCount; i++) {
+            if (gameStates[i].isGameOver()) {
+                playersGameOver++;
+            }
+        }
+        // Solo: over when the player tops out. Versus: over once at most one player is left standing.
+        if (playerCount > 0 && playersGameOver >= (playerCount > 1 ? playerCount - 1 : 1) && !matchOver) {
+            matchOver = true;
+            listener.onMatchEvent(-1, EVENT_MATCH_OVER, 0);
+        }
+    }
+
+    private void updateFallInterval(int player) {
+        int level = scoreManagers[player].getLevel();
+        double interval;
+        switch (level) {
+            case 1:
+                interval = 48.0 / 60.0;
+                break;
+            case 2:
+                interval = 43.0 / 60.0;
+                break;
+            case 3:
+                interval = 38.0 / 60.0;
+                break;
+            case 4:
+                interval = 33.0 / 60.0;
+                break;
+            case 5:
+                interval = 28.0 / 60.0;
+                break;
+            case 6:
+                interval = 23.0 / 60.0;
+                break;
+            case 7:
+                interval = 18.0 / 60.0;
+                break;
+            case 8:
+                interval = 13.0 / 60.0;
+                break;
+            case 9:
+                interval = 8.0 / 60.0;
+                break;
+            case 10:
+                interval = 6.0 / 60.0;
+                break;
+            case 11:
+                interval = 5.0 / 60.0;
+                break;
+            case 12:
+                interval = 4.0 / 60.0;
+                break;
+            case 13:
+                interval = 3.0 / 60.0;
+                break;
+            case 14:
+                interval = 2.0 / 60.0;
+                break;
+            case 15:
+                interval = 1.0 / 60.0;
+                break;
+            default:
+                interval = Math.max(1.0 / 60.0, 48.0 / 60.0 - ((level - 1) * 5.0 / 60.0));
+        }
+        fallIntervals[player] = interval;
+    }
+
+    // Getters
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    public Board getBoard(int player) {
+        return boards[player];
+    }
+
+    public Piece getCurrentPiece(int player) {
+        return pieces[player];
+    }
+
+    public ScoreManager getScoreManager(int player) {
+        return scoreManagers[player];
+    }
+
+    public GameState getPlayerGameState(int player) {
+        return gameStates[player];
+    }
+
+    public PieceGenerator getPieceGenerator(int player) {
+        return generators[player];
+    }
+
+    // Held piece type, or NO_HOLD
+    public int getHeldPieceType(int player) {
+        return heldPieceTypes[player];
+    }
+
+    public Randomizer.Type getRandomizer() {
+        return randomizer;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public boolean isMatchOver() {
+        return matchOver;
+    }
+}
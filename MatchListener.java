@@ -0,0 +1,6 @@
+// Receives everything that happens in a MatchEngine: sounds, popups and effects hang off these.
+// Events are plain ints (see the MatchEngine.EVENT_* constants) so headless matches never allocate
+// to report them.
+public interface MatchListener {
+    void onMatchEvent(int player, int event, int value);
+}
@@ -0,0 +1,16 @@
+import java.util.SplittableRandom;
+
+// Every piece is an independent uniform draw
+public class MemorylessRandomizer implements Randomizer {
+    private SplittableRandom random;
+
+    @Override
+    public void reset(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public int next() {
+        return random.nextInt(PIECE_TYPES);
+    }
+}
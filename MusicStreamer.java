@@ -0,0 +1,114 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.SourceDataLine;
+
+// Plays one WAV file at a time on loop, straight from disk. The PCM data chunk is memory-mapped,
+// so only the pages being played are resident, and a background thread copies it to a
+// SourceDataLine a small buffer at a time. Looping rewinds the mapping at the end of the data
+// chunk without closing the line, so there is no gap and no guessed track length.
+public class MusicStreamer {
+    private static final int BUFFER_MILLIS = 40; // Audio copied per write; also the stop latency
+    private static final int LINE_BUFFER_CHUNKS = 4; // Line buffer size, in copy buffers
+
+    private Stream current;
+
+    // Stops whatever is playing and starts looping the file
+    public synchronized void play(String filename) {
+        stop();
+        current = new Stream(new File(filename));
+        Thread thread = new Thread(current, "Music " + filename);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Returns straight away; the streaming thread stops and closes its line within one buffer
+    public synchronized void stop() {
+        if (current != null) {
+            current.stopped = true;
+            current = null;
+        }
+    }
+
+    // Maps the data chunk of a RIFF/WAVE file, positioned at its first sample frame
+    static MappedByteBuffer mapPcmData(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < 12 || header.getInt(0) != 0x46464952 || header.getInt(8) != 0x45564157) {
+                throw new IOException("not a RIFF/WAVE file: " + file); // "RIFF" ... "WAVE", little-endian
+            }
+            long position = 12; // First chunk header
+            long size = channel.size();
+            while (position + 8 <= size) {
+                header.clear();
+                header.limit(8);
+                channel.read(header, position);
+                header.flip();
+                int id = header.getInt();
+                long length = header.getInt() & 0xFFFFFFFFL;
+                position += 8;
+                if (id == 0x61746164) { // "data", little-endian
+                    // Writers that stream their output leave the length unset, so trust the file size
+                    return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(length, size - position));
+                }
+                position += length + (length & 1); // Chunks are padded to an even length
+            }
+        }
+        throw new IOException("no data chunk in " + file);
+    }
+
+    private static class Stream implements Runnable {
+        private final File file;
+        volatile boolean stopped;
+
+        Stream(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public void run() {
+            SourceDataLine line = null;
+            try {
+                AudioFormat format = AudioSystem.getAudioFileFormat(file).getFormat();
+                MappedByteBuffer data = mapPcmData(file);
+                int frameSize = Math.max(1, format.getFrameSize());
+                int frames = Math.max(1, (int) (format.getFrameRate() * BUFFER_MILLIS / 1000));
+                byte[] chunk = new byte[frames * frameSize];
+                // A stray partial frame at the end would shift every later loop out of alignment
+                int end = data.limit() - data.limit() % frameSize;
+                if (end == 0) {
+                    return;
+                }
+
+                line = AudioSystem.getSourceDataLine(format);
+                line.open(format, chunk.length * LINE_BUFFER_CHUNKS);
+                line.start();
+                while (!stopped) {
+                    if (data.position() == end) {
+                        data.position(0);
+                    }
+                    int n = Math.min(chunk.length, end - data.position());
+                    data.get(chunk, 0, n);
+                    line.write(chunk, 0, n);
+                }
+                line.stop();
+                line.flush();
+            } catch (Exception exception) {
+                System.out.println("Error: could not stream music " + file + " (" + exception.getMessage() + ")\n");
+            } finally {
+                if (line != null) {
+                    line.close();
+                }
+            }
+        }
+    }
+}
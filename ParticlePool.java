@@ -0,0 +1,131 @@
+import java.awt.Color;
+
+// Fixed-capacity particle storage, one array per field. Live particles are packed into slots
+// [0, count): a dead one is replaced by the last live one, so removal is O(1) and nothing is
+// allocated after construction. When the pool is full, new particles are dropped.
+public class ParticlePool {
+    public static final int DEFAULT_CAPACITY = 24000; // Two simultaneous four-line clears
+
+    // Palette indices for spawn()
+    public static final int WHITE = 0;
+    public static final int PALE_BLUE = 1;
+    private static final Color[] PALETTE = { Color.WHITE, new Color(180, 220, 255) };
+
+    // PALETTE faded to each alpha 0-255, built once so drawing allocates no Colors
+    private static final Color[][] FADED = new Color[PALETTE.length][256];
+    static {
+        for (int c = 0; c < PALETTE.length; c++) {
+            for (int a = 0; a < 256; a++) {
+                FADED[c][a] = new Color(PALETTE[c].getRed(), PALETTE[c].getGreen(), PALETTE[c].getBlue(), a);
+            }
+        }
+    }
+
+    private final int capacity;
+    private int count;
+
+    private final double[] x, y; // Current position (pixels)
+    private final double[] prevX, prevY; // Position before the last update, for interpolated drawing
+    private final double[] vx, vy; // Velocity (pixels/sec)
+    private final double[] age, lifetime; // Seconds alive, seconds to live
+    private final byte[] color; // Index into PALETTE
+    private final byte[] size; // Square size in pixels
+
+    public ParticlePool(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Particle capacity must not be negative: " + capacity);
+        }
+        this.capacity = capacity;
+        x = new double[capacity];
+        y = new double[capacity];
+        prevX = new double[capacity];
+        prevY = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        age = new double[capacity];
+        lifetime = new double[capacity];
+        color = new byte[capacity];
+        size = new byte[capacity];
+    }
+
+    // Returns false (and does nothing) if the pool is full
+    public boolean spawn(double px, double py, double pvx, double pvy, double life, int paletteIndex, int pixels) {
+        if (count == capacity) {
+            return false;
+        }
+        int i = count++;
+        x[i] = px;
+        y[i] = py;
+        prevX[i] = px;
+        prevY[i] = py;
+        vx[i] = pvx;
+        vy[i] = pvy;
+        age[i] = 0;
+        lifetime[i] = life;
+        color[i] = (byte) paletteIndex;
+        size[i] = (byte) pixels;
+        return true;
+    }
+
+    // Ages and moves every particle, removing the ones whose lifetime is up
+    public void update(double dt) {
+        int i = 0;
+        while (i < count) {
+            age[i] += dt;
+            if (age[i] >= lifetime[i]) {
+                moveLastTo(i); // The moved particle has not been updated yet, so slot i goes round again
+                continue;
+            }
+            prevX[i] = x[i];
+            prevY[i] = y[i];
+            x[i] += vx[i] * dt;
+            y[i] += vy[i] * dt;
+            i++;
+        }
+    }
+
+    private void moveLastTo(int i) {
+        int last = --count;
+        x[i] = x[last];
+        y[i] = y[last];
+        prevX[i] = prevX[last];
+        prevY[i] = prevY[last];
+        vx[i] = vx[last];
+        vy[i] = vy[last];
+        age[i] = age[last];
+        lifetime[i] = lifetime[last];
+        color[i] = color[last];
+        size[i] = size[last];
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Position between the last two updates; interpolation from GameEngine.getInterpolation()
+    public double renderX(int i, double interpolation) {
+        return prevX[i] + (x[i] - prevX[i]) * interpolation;
+    }
+
+    public double renderY(int i, double interpolation) {
+        return prevY[i] + (y[i] - prevY[i]) * interpolation;
+    }
+
+    public int getSize(int i) {
+        return size[i];
+    }
+
+    // Palette colour with alpha fading linearly from opaque to clear over the lifetime
+    public Color getColor(int i) {
+        double ratio = Math.max(0, 1 - (age[i] / lifetime[i]));
+        return FADED[color[i]][(int) ((float) ratio * 255f)];
+    }
+}
@@ -5,11 +5,11 @@ public class Piece {
     private int pieceY;
     private int pieceColor;
     private int shapeId;
-    private int[][] activeShape;
+    private PieceRotations.Rotation activeRotation; // Shared table entry for shapeId/currentRotation
     private Board board;
     private PieceGenerator pieceGenerator;
-    private AssetManager assetManager;
     private int currentRotation; // Added to track rotation state for AI
+    private int spawnSerial; // Bumped on every spawn, tells consecutive pieces of the same type apart
 
     // Define the shapes of all tetriminoes (0=I, 1=J, 2=L, 3=O, 4=S, 5=T, 6=Z)
     public static final int[][][] SHAPES = {
@@ -22,12 +22,11 @@ public class Piece {
             { { -1, 0 }, { 0, 0 }, { 0, 1 }, { 1, 1 } } // Z
     };
 
-    // Constructor
-    public Piece(Board board, PieceGenerator generator, AssetManager assetManager) {
+    // Constructor. Movement methods report success through their return value; sounds are up to the caller.
+    public Piece(Board board, PieceGenerator generator) {
         this.board = board;
-        this.activeShape = new int[4][2];
+        this.activeRotation = PieceRotations.get(0, 0);
         this.pieceGenerator = generator;
-        this.assetManager = assetManager;
         this.currentRotation = 0; // Initialise rotation
     }
 
@@ -37,11 +36,7 @@ public class Piece {
         this.pieceY = original.pieceY;
         this.pieceColor = original.pieceColor;
         this.shapeId = original.shapeId;
-        this.activeShape = new int[4][2];
-        for (int i = 0; i < 4; i++) {
-            this.activeShape[i][0] = original.activeShape[i][0];
-            this.activeShape[i][1] = original.activeShape[i][1];
-        }
+        this.activeRotation = original.activeRotation; // Table entries are immutable, safe to share
         this.board = original.board; // Should be the simulated board in AI context
         this.pieceGenerator = original.pieceGenerator; // Not strictly necessary for simulation if not spawning
         this.currentRotation = original.currentRotation;
@@ -49,16 +44,13 @@ public class Piece {
 
     public void spawnNewPiece() {
         this.shapeId = pieceGenerator.getNextPieceType();
+        this.spawnSerial++;
         this.pieceColor = this.shapeId + 1;
 
         pieceY = Board.BUFFER_HEIGHT;
         pieceX = (Board.WIDTH / 2) - 1;
         this.currentRotation = 0; // Reset rotation on new piece
-
-        for (int i = 0; i < 4; i++) {
-            activeShape[i][0] = SHAPES[this.shapeId][i][0];
-            activeShape[i][1] = SHAPES[this.shapeId][i][1];
-        }
+        this.activeRotation = PieceRotations.get(this.shapeId, 0);
 
         if (shapeId == 0) { // I piece
             pieceY++;
@@ -68,16 +60,13 @@ public class Piece {
     // New method to spawn a specific piece, bypassing the generator
     public void spawnSpecificPiece(int specificShapeId) {
         this.shapeId = specificShapeId;
+        this.spawnSerial++;
         this.pieceColor = this.shapeId + 1;
         this.currentRotation = 0; // Reset rotation
 
         pieceY = Board.BUFFER_HEIGHT;
         pieceX = (Board.WIDTH / 2) - 1;
-
-        for (int i = 0; i < 4; i++) {
-            activeShape[i][0] = SHAPES[this.shapeId][i][0];
-            activeShape[i][1] = SHAPES[this.shapeId][i][1];
-        }
+        this.activeRotation = PieceRotations.get(this.shapeId, 0);
 
         if (this.shapeId == 0) {
             pieceY++;
@@ -86,31 +75,27 @@ public class Piece {
 
     // Checks if the piece overlaps with the board or is out of bounds at its current spawn location
     public boolean checkSpawnCollision() {
-        return !isValidPosition(activeShape, pieceX, pieceY);
+        return board.collides(activeRotation, pieceX, pieceY);
     }
 
     // Add method to check for lock out condition
     public boolean isLockOut() {
-        return board.isPieceInBufferZone(activeShape, pieceX, pieceY);
+        return board.isPieceInBufferZone(activeRotation.blocks, pieceX, pieceY);
     }
 
     public boolean moveLeft() {
         if (canMove(-1, 0)) {
             pieceX--;
-            assetManager.playSound(assetManager.moveSound);
             return true;
         }
-        assetManager.playSound(assetManager.blockedMoveSound);
         return false;
     }
 
     public boolean moveRight() {
         if (canMove(1, 0)) {
             pieceX++;
-            assetManager.playSound(assetManager.moveSound);
             return true;
         }
-        assetManager.playSound(assetManager.blockedMoveSound);
         return false;
     }
 
@@ -127,55 +112,31 @@ public class Piece {
     }
 
     private boolean canMove(int dx, int dy) {
-        for (int[] block : activeShape) {
-            int newX = pieceX + block[0] + dx;
-            int newY = pieceY + block[1] + dy;
-
-            if (!board.isWithinBounds(newX, newY) || board.isOccupied(newX, newY)) {
-                return false;
-            }
-        }
-        return true;
-    }
-
-    private boolean isValidPosition(int[][] shape, int newPieceX, int newPieceY) {
-        for (int[] block : shape) {
-            int x = newPieceX + block[0];
-            int y = newPieceY + block[1];
-            if (!board.isWithinBounds(x, y) || board.isOccupied(x, y)) {
-                return false;
-            }
-        }
-        return true;
+        return !board.collides(activeRotation, pieceX + dx, pieceY + dy);
     }
 
     public void lockPiece() {
-        for (int[] block : activeShape) {
+        for (int[] block : activeRotation.blocks) {
             board.placePiece(pieceX + block[0], pieceY + block[1], pieceColor);
         }
     }
 
-    public int[][] getGhostCoordinates() {
+    // Y the piece would land at if dropped straight down from where it is
+    public int getGhostY() {
         int ghostY = pieceY;
-        while (true) {
-            boolean willLand = false;
-            for (int[] block : activeShape) {
-                int x = pieceX + block[0];
-                int y = ghostY + block[1] + 1;
-                if (!board.isWithinBounds(x, y) || board.isOccupied(x, y)) {
-                    willLand = true;
-                    break;
-                }
-            }
-            if (willLand)
-                break;
+        while (!board.collides(activeRotation, pieceX, ghostY + 1)) {
             ghostY++;
         }
+        return ghostY;
+    }
 
+    public int[][] getGhostCoordinates() {
+        int ghostY = getGhostY();
+        int[][] blocks = activeRotation.blocks;
         int[][] ghostBlocks = new int[4][2];
         for (int i = 0; i < 4; i++) {
-            ghostBlocks[i][0] = pieceX + activeShape[i][0];
-            ghostBlocks[i][1] = ghostY + activeShape[i][1];
+            ghostBlocks[i][0] = pieceX + blocks[i][0];
+            ghostBlocks[i][1] = ghostY + blocks[i][1];
         }
         return ghostBlocks;
     }
@@ -201,8 +162,13 @@ public class Piece {
         return pieceColor;
     }
 
+    // Block offsets of the current rotation (shared table data, do not modify)
     public int[][] getShape() {
-        return activeShape;
+        return activeRotation.blocks;
+    }
+
+    public PieceRotations.Rotation getRotation() {
+        return activeRotation;
     }
 
     public int getCurrentRotation() { 
@@ -210,72 +176,24 @@ public class Piece {
     }
 
     public boolean rotateClockwise() {
-        if (this.shapeId == 3) // O piece cannot be rotated
-            return false;
-
-        int[][] candidate = new int[4][2];
-        int pivotRelX = activeShape[1][0];
-        int pivotRelY = activeShape[1][1];
-
-        for (int i = 0; i < 4; i++) {
-            int currentRelX = activeShape[i][0];
-            int currentRelY = activeShape[i][1];
-
-            int dx = currentRelX - pivotRelX;
-            int dy = currentRelY - pivotRelY;
-
-            int newRelDx = -dy;
-            int newRelDy = dx;
-
-            candidate[i][0] = pivotRelX + newRelDx;
-            candidate[i][1] = pivotRelY + newRelDy;
-        }
-
-        if (isValidPosition(candidate, pieceX, pieceY)) {
-            for (int i = 0; i < 4; i++) {
-                activeShape[i][0] = candidate[i][0];
-                activeShape[i][1] = candidate[i][1];
-            }
-            assetManager.playSound(assetManager.rotateSound);
-            currentRotation = (currentRotation + 1) % 4; // Update rotation state
-            return true;
-        }
-        assetManager.playSound(assetManager.blockedRotateSound);
-        return false;
+        return rotateTo((currentRotation + 1) % 4);
     }
 
     public boolean rotateCounterClockwise() {
-        if (this.shapeId == 3)
-            return false;
-
-        int[][] candidate = new int[4][2];
-        int pivotRelX = activeShape[1][0];
-        int pivotRelY = activeShape[1][1];
-
-        for (int i = 0; i < 4; i++) {
-            int currentRelX = activeShape[i][0];
-            int currentRelY = activeShape[i][1];
-
-            int dx = currentRelX - pivotRelX;
-            int dy = currentRelY - pivotRelY;
-
-            int newRelDx = dy;
-            int newRelDy = -dx;
+        return rotateTo((currentRotation + 3) % 4);
+    }
 
-            candidate[i][0] = pivotRelX + newRelDx;
-            candidate[i][1] = pivotRelY + newRelDy;
-        }
+    // Rotation is an index change into PieceRotations; no wall kicks
+    private boolean rotateTo(int newRotation) {
+        if (this.shapeId == PieceRotations.O_PIECE) // O piece cannot be rotated
+            return false;
 
-        if (isValidPosition(candidate, pieceX, pieceY)) {
-            for (int i = 0; i < 4; i++) {
-                activeShape[i][0] = candidate[i][0];
-                activeShape[i][1] = candidate[i][1];
-            }
-            assetManager.playSound(assetManager.rotateSound);
-            currentRotation = (currentRotation - 1 + 4) % 4; // Update rotation state
+        PieceRotations.Rotation candidate = PieceRotations.get(shapeId, newRotation);
+        if (!board.collides(candidate, pieceX, pieceY)) {
+            activeRotation = candidate;
+            currentRotation = newRotation; // Update rotation state
             return true;
         }
-        assetManager.playSound(assetManager.blockedRotateSound);
         return false;
     }
 
@@ -283,37 +201,29 @@ public class Piece {
         return pieceGenerator.peekNextPieces();
     }
 
+    // Type of the index-th upcoming piece, allocation-free alternative to getNextPieces()
+    public int peekNextPieceType(int index) {
+        return pieceGenerator.peekPiece(index);
+    }
+
+    public int getPreviewSize() {
+        return pieceGenerator.getPreviewSize();
+    }
+
+    public int getSpawnSerial() {
+        return this.spawnSerial;
+    }
+
     public int getPieceType() {
         return this.shapeId;
     }
 
     // Simulation-specific rotation, no wall kicks, no game state changes
     public void rotateClockwiseForSimulation() {
-        if (this.shapeId == 3) return; // O piece doesn\'t rotate
-
-        int[][] newShape = new int[4][2];
-        // Assuming pivot is the second block (index 1) as in game rotation
-        // For shapes like 'I', this might need adjustment or a defined pivot per shape.
-        // For simplicity, using the same logic as game rotation pivot.
-        int pivotRelX = activeShape[1][0];
-        int pivotRelY = activeShape[1][1];
-
-        for (int i = 0; i < 4; i++) {
-            int currentRelX = activeShape[i][0];
-            int currentRelY = activeShape[i][1];
-
-            int dx = currentRelX - pivotRelX;
-            int dy = currentRelY - pivotRelY;
+        if (this.shapeId == PieceRotations.O_PIECE) return; // O piece doesn't rotate
 
-            // Rotate 90 degrees clockwise: (x, y) -> (-y, x) around pivot
-            int newRelDx = -dy;
-            int newRelDy = dx;
-
-            newShape[i][0] = pivotRelX + newRelDx;
-            newShape[i][1] = pivotRelY + newRelDy;
-        }
-        activeShape = newShape;
         currentRotation = (currentRotation + 1) % 4;
+        activeRotation = PieceRotations.get(shapeId, currentRotation);
     }
     
     public void moveDownForSimulation() {
@@ -322,16 +232,7 @@ public class Piece {
 
     // Check collision for a simulated piece at a given position and rotation state
     public boolean checkCollision(int x, int y, int rotationState, Board simBoard) {
-        // This method needs to use the shape corresponding to 'rotationState'
-        // For now, it uses activeShape which is already rotated in the simulation loop.
-        for (int[] block : activeShape) {
-            int checkX = x + block[0];
-            int checkY = y + block[1];
-            if (!simBoard.isWithinBounds(checkX, checkY) || simBoard.isOccupied(checkX, checkY)) {
-                return true;
-            }
-        }
-        return false;
+        return simBoard.collides(PieceRotations.get(shapeId, rotationState), x, y);
     }
     
     public int getSpawnY() {
@@ -340,11 +241,7 @@ public class Piece {
     }
 
     public int getLeftmostX() {
-        int minX = Integer.MAX_VALUE;
-        for (int[] block : activeShape) {
-            minX = Math.min(minX, block[0]);
-        }
-        return minX;
+        return activeRotation.minX;
     }
 
     public int getRightmostXAfterSpawn(int currentPieceX) {
@@ -352,10 +249,7 @@ public class Piece {
         // RELATIVE to the board, not just the piece's local coordinates.
         // It's used to determine valid spawn/drop columns.
         // The `currentPieceX` is the board column where the piece's origin is.
-        int maxRelX = Integer.MIN_VALUE;
-        for (int[] block : activeShape) {
-            maxRelX = Math.max(maxRelX, block[0]);
-        }
+        int maxRelX = activeRotation.maxX;
         // Returns the maximum extent from the piece's origin.
         // So, if a piece's origin is at `currentPieceX`, and its rightmost block is `maxRelX`
         // the actual board column is `currentPieceX + maxRelX`.
@@ -1,62 +1,80 @@
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Random;
 
+// Upcoming pieces for one player. Types come from a seeded Randomizer into a fixed int ring
+// buffer, so drawing and peeking never allocate. Generators built with the same type and seed
+// deal the same sequence, which is how every player in a match gets the same pieces.
 public class PieceGenerator {
-    private List<Integer> currentBag;
-    private List<Integer> nextBag;
-    private final int BAG_SIZE = 7;
+    private static final int QUEUE_CAPACITY = 16; // Power of two, more than any preview needs
+    private static final int QUEUE_MASK = QUEUE_CAPACITY - 1;
     private final int PREVIEW_SIZE = 3;
-    private Random random;
+
+    private final Randomizer randomizer;
+    private final Randomizer.Type type;
+    private final int[] queue = new int[QUEUE_CAPACITY];
+    private int head; // Index of the next piece
+    private int size; // Pieces drawn from the randomizer but not yet dealt
+    private long seed;
 
     public PieceGenerator() {
-        this.random = new Random();
-        currentBag = new ArrayList<>();
-        nextBag = new ArrayList<>();
-        fillNewBag(currentBag);
-        fillNewBag(nextBag);
+        this(Randomizer.Type.BAG_7, System.nanoTime());
     }
 
-    private void fillNewBag(List<Integer> bag) {
-        bag.clear();
-        for (int i = 0; i < BAG_SIZE; i++) {
-            bag.add(i);
-        }
-        Collections.shuffle(bag, random);
+    public PieceGenerator(Randomizer.Type type, long seed) {
+        this.type = type;
+        this.randomizer = type.create(seed);
+        this.seed = seed;
+    }
+
+    // Restarts the sequence for a new game
+    public void reset(long seed) {
+        this.seed = seed;
+        randomizer.reset(seed);
+        head = 0;
+        size = 0;
     }
 
     public int getNextPieceType() {
-        if (currentBag.isEmpty()) {
-            currentBag = nextBag;
-            nextBag = new ArrayList<>();
-            fillNewBag(nextBag);
+        if (size == 0) {
+            queue[head] = randomizer.next();
+            size = 1;
         }
-        return currentBag.remove(0);
+        int pieceType = queue[head];
+        head = (head + 1) & QUEUE_MASK;
+        size--;
+        return pieceType;
+    }
+
+    public int getPreviewSize() {
+        return PREVIEW_SIZE;
+    }
+
+    // Single preview slot without building a list (index 0 = next piece)
+    public int peekPiece(int index) {
+        if (index >= QUEUE_CAPACITY) {
+            throw new IndexOutOfBoundsException("Preview index " + index + " beyond " + QUEUE_CAPACITY);
+        }
+        while (size <= index) {
+            queue[(head + size) & QUEUE_MASK] = randomizer.next();
+            size++;
+        }
+        return queue[(head + index) & QUEUE_MASK];
     }
 
     // Change method name back to match original
     public List<Integer> peekNextPieces() {
-        List<Integer> preview = new ArrayList<>();
-        
-        // Take from current bag first
-        int fromCurrentBag = Math.min(PREVIEW_SIZE, currentBag.size());
-        for (int i = 0; i < fromCurrentBag; i++) {
-            preview.add(currentBag.get(i));
+        List<Integer> preview = new ArrayList<>(PREVIEW_SIZE);
+        for (int i = 0; i < PREVIEW_SIZE; i++) {
+            preview.add(peekPiece(i));
         }
-        
-        // If we need more pieces, ensure nextBag is filled first
-        if (preview.size() < PREVIEW_SIZE) {
-            if (nextBag.isEmpty()) {
-                fillNewBag(nextBag);
-            }
-            // Take remaining needed pieces from next bag
-            int remaining = PREVIEW_SIZE - preview.size();
-            for (int i = 0; i < remaining; i++) {
-                preview.add(nextBag.get(i));
-            }
-        }
-        
         return preview;
     }
+
+    public Randomizer.Type getType() {
+        return type;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
 }
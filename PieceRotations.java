@@ -0,0 +1,87 @@
+// Precomputed rotation states for all tetrominoes.
+// Built once from Piece.SHAPES by rotating clockwise around block 1 (the same pivot
+// the game has always used), so rotating a piece is an index change and collision
+// is a handful of row-mask ANDs against the board.
+public final class PieceRotations {
+    public static final int ROTATIONS = 4;
+    public static final int O_PIECE = 3; // The O piece never rotates
+
+    // One shape in one rotation state. Instances are shared and must not be modified.
+    public static final class Rotation {
+        final int[][] blocks; // block offsets relative to the piece origin
+        final int[] rowMasks; // rowMasks[j] covers offset y = minY + j, bit i = offset x minX + i
+        final int minX, maxX, minY, maxY; // extents of the blocks relative to the origin
+
+        private Rotation(int[][] blocks) {
+            this.blocks = blocks;
+            int loX = Integer.MAX_VALUE, hiX = Integer.MIN_VALUE;
+            int loY = Integer.MAX_VALUE, hiY = Integer.MIN_VALUE;
+            for (int[] block : blocks) {
+                loX = Math.min(loX, block[0]);
+                hiX = Math.max(hiX, block[0]);
+                loY = Math.min(loY, block[1]);
+                hiY = Math.max(hiY, block[1]);
+            }
+            this.minX = loX;
+            this.maxX = hiX;
+            this.minY = loY;
+            this.maxY = hiY;
+            this.rowMasks = new int[hiY - loY + 1];
+            for (int[] block : blocks) {
+                rowMasks[block[1] - loY] |= 1 << (block[0] - loX);
+            }
+        }
+
+        public int[][] getBlocks() { return blocks; }
+        public int getMinX() { return minX; }
+        public int getMaxX() { return maxX; }
+        public int getMinY() { return minY; }
+        public int getMaxY() { return maxY; }
+    }
+
+    private static final Rotation[][] TABLE = buildTable();
+
+    private PieceRotations() {
+    }
+
+    public static Rotation get(int shapeId, int rotation) {
+        return TABLE[shapeId][rotation];
+    }
+
+    private static Rotation[][] buildTable() {
+        Rotation[][] table = new Rotation[Piece.SHAPES.length][ROTATIONS];
+        for (int shapeId = 0; shapeId < Piece.SHAPES.length; shapeId++) {
+            int[][] shape = copyShape(Piece.SHAPES[shapeId]);
+            for (int r = 0; r < ROTATIONS; r++) {
+                table[shapeId][r] = new Rotation(shape);
+                if (shapeId != O_PIECE) {
+                    shape = rotateClockwise(shape);
+                }
+            }
+        }
+        return table;
+    }
+
+    // Rotate 90 degrees clockwise: (x, y) -> (-y, x) around block 1
+    private static int[][] rotateClockwise(int[][] shape) {
+        int[][] rotated = new int[shape.length][2];
+        int pivotX = shape[1][0];
+        int pivotY = shape[1][1];
+        for (int i = 0; i < shape.length; i++) {
+            int dx = shape[i][0] - pivotX;
+            int dy = shape[i][1] - pivotY;
+            rotated[i][0] = pivotX - dy;
+            rotated[i][1] = pivotY + dx;
+        }
+        return rotated;
+    }
+
+    private static int[][] copyShape(int[][] shape) {
+        int[][] copy = new int[shape.length][2];
+        for (int i = 0; i < shape.length; i++) {
+            copy[i][0] = shape[i][0];
+            copy[i][1] = shape[i][1];
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.Arrays;
+
+// Finds every placement a piece can actually reach from where it is, using the same rules
+// as Piece: shift left/right, rotate either way without wall kicks, and step down. A BFS over
+// (x, y, rotation) states with a visited bitset, so tucks and spins under overhangs are found
+// too, and every placement comes with the shortest input path that gets there.
+// All buffers are allocated once; generate() itself never allocates.
+public class PlacementGenerator {
+    public static final byte MOVE_LEFT = 0;
+    public static final byte MOVE_RIGHT = 1;
+    public static final byte MOVE_DOWN = 2;
+    public static final byte ROTATE_CW = 3;
+    public static final byte ROTATE_CCW = 4;
+
+    // Piece origins stay within two cells of the board on every side (block offsets are -2..2)
+    private static final int X_OFFSET = 2;
+    private static final int X_RANGE = Board.WIDTH + 2 * X_OFFSET;
+    private static final int Y_OFFSET = 2;
+    private static final int Y_RANGE = Board.TOTAL_HEIGHT + 2 * Y_OFFSET;
+    private static final int STATES = PieceRotations.ROTATIONS * Y_RANGE * X_RANGE;
+
+    // Longest possible input path: every state visited once
+    public static final int MAX_PATH = STATES;
+
+    private final long[] visited = new long[(STATES + 63) >>> 6];
+    private final int[] queue = new int[STATES];
+    private final int[] parent = new int[STATES]; // State we came from, -1 for the start state
+    private final byte[] moveTaken = new byte[STATES]; // Move that led into the state
+
+    private final int[] placements = new int[STATES]; // Landed states, in BFS order
+    private int placementCount;
+    private int statesVisited;
+
+    // Runs the search for shapeId starting at (x, y, rotation) on board and returns the number of
+    // reachable final placements. Results stay valid until the next call.
+    public int generate(Board board, int shapeId, int x, int y, int rotation) {
+        Arrays.fill(visited, 0L);
+        placementCount = 0;
+        statesVisited = 0;
+        if (board.collides(PieceRotations.get(shapeId, rotation), x, y)) {
+            return 0;
+        }
+
+        int start = encode(x, y, rotation);
+        markVisited(start);
+        parent[start] = -1;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        boolean rotates = shapeId != PieceRotations.O_PIECE;
+
+        while (head < tail) {
+            int state = queue[head++];
+            int sx = stateX(state);
+            int sy = stateY(state);
+            int sr = stateRotation(state);
+            PieceRotations.Rotation current = PieceRotations.get(shapeId, sr);
+
+            if (board.collides(current, sx, sy + 1)) {
+                placements[placementCount++] = state;
+            } else {
+                tail = visit(board, current, state, sx, sy + 1, sr, MOVE_DOWN, tail);
+            }
+            tail = visit(board, current, state, sx - 1, sy, sr, MOVE_LEFT, tail);
+            tail = visit(board, current, state, sx + 1, sy, sr, MOVE_RIGHT, tail);
+            if (rotates) {
+                int cw = (sr + 1) % PieceRotations.ROTATIONS;
+                int ccw = (sr + 3) % PieceRotations.ROTATIONS;
+                tail = visit(board, PieceRotations.get(shapeId, cw), state, sx, sy, cw, ROTATE_CW, tail);
+                tail = visit(board, PieceRotations.get(shapeId, ccw), state, sx, sy, ccw, ROTATE_CCW, tail);
+            }
+        }
+        statesVisited = tail;
+        return placementCount;
+    }
+
+    private int visit(Board board, PieceRotations.Rotation rotation, int from, int x, int y, int r,
+            byte move, int tail) {
+        if (board.collides(rotation, x, y)) {
+            return tail;
+        }
+        int state = encode(x, y, r);
+        if (isVisited(state)) {
+            return tail;
+        }
+        markVisited(state);
+        parent[state] = from;
+        moveTaken[state] = move;
+        queue[tail] = state;
+        return tail + 1;
+    }
+
+    // Index of the placement at (x, y, rotation), or -1 if it isn't reachable
+    public int findPlacement(int x, int y, int rotation) {
+        if (x + X_OFFSET < 0 || x + X_OFFSET >= X_RANGE || y + Y_OFFSET < 0 || y + Y_OFFSET >= Y_RANGE) {
+            return -1;
+        }
+        int state = encode(x, y, rotation);
+        for (int i = 0; i < placementCount; i++) {
+            if (placements[i] == state) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Writes the moves leading from the start state to the placement into path (MAX_PATH is always
+    // enough) and returns how many there are
+    public int getPath(int placement, byte[] path) {
+        int length = 0;
+        for (int state = placements[placement]; parent[state] >= 0; state = parent[state]) {
+            length++;
+        }
+        int i = length;
+        for (int state = placements[placement]; parent[state] >= 0; state = parent[state]) {
+            path[--i] = moveTaken[state];
+        }
+        return length;
+    }
+
+    public int getPlacementCount() {
+        return placementCount;
+    }
+
+    public int getPlacementX(int placement) {
+        return stateX(placements[placement]);
+    }
+
+    public int getPlacementY(int placement) {
+        return stateY(placements[placement]);
+    }
+
+    public int getPlacementRotation(int placement) {
+        return stateRotation(placements[placement]);
+    }
+
+    public int getStatesVisited() {
+        return statesVisited;
+    }
+
+    private static int encode(int x, int y, int rotation) {
+        return (rotation * Y_RANGE + (y + Y_OFFSET)) * X_RANGE + (x + X_OFFSET);
+    }
+
+    private static int stateX(int state) {
+        return state % X_RANGE - X_OFFSET;
+    }
+
+    private static int stateY(int state) {
+        return (state / X_RANGE) % Y_RANGE - Y_OFFSET;
+    }
+
+    private static int stateRotation(int state) {
+        return state / (X_RANGE * Y_RANGE);
+    }
+
+    private boolean isVisited(int state) {
+        return (visited[state >>> 6] & (1L << state)) != 0;
+    }
+
+    private void markVisited(int state) {
+        visited[state >>> 6] |= 1L << state;
+    }
+}
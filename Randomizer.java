@@ -0,0 +1,36 @@
+// Source of piece types for a PieceGenerator. Implementations draw from a SplittableRandom seeded
+// through reset(), so two randomizers of the same type and seed produce the same sequence.
+public interface Randomizer {
+    int PIECE_TYPES = 7;
+
+    enum Type {
+        BAG_7, // Every piece once per 7, the modern guideline randomizer
+        BAG_14, // Every piece twice per 14: same long-run balance, more room for streaks
+        CLASSIC, // NES style: one reroll if the roll repeats the last piece
+        MEMORYLESS; // Independent uniform draws
+
+        public Randomizer create(long seed) {
+            Randomizer randomizer;
+            switch (this) {
+                case BAG_14:
+                    randomizer = new BagRandomizer(2);
+                    break;
+                case CLASSIC:
+                    randomizer = new ClassicRandomizer();
+                    break;
+                case MEMORYLESS:
+                    randomizer = new MemorylessRandomizer();
+                    break;
+                default:
+                    randomizer = new BagRandomizer(1);
+            }
+            randomizer.reset(seed);
+            return randomizer;
+        }
+    }
+
+    // Restarts the sequence from the beginning for this seed
+    void reset(long seed);
+
+    int next();
+}
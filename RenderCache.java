@@ -0,0 +1,177 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.util.HashMap;
+
+// Interned drawing resources (colours, fonts, strokes, laid-out text and number strings), so that
+// drawing a frame that looks like the previous one allocates nothing. Lookups take primitive or
+// existing-object keys and never box or concatenate. Not thread-safe: only the thread that paints
+// should use it.
+public class RenderCache {
+    private static final int GLYPH_CAPACITY = 512; // Laid-out strings kept before the cache starts over
+    private static final int LABEL_SLOTS = 256; // Direct-mapped number/label string slots
+
+    // ARGB -> Color, open addressing with linear probing
+    private int[] colorKeys = new int[256];
+    private Color[] colorValues = new Color[256];
+    private int colorCount;
+
+    // Family -> fonts indexed by size * 4 + style
+    private final HashMap<String, Font[]> fonts = new HashMap<>();
+
+    // Width -> stroke, for the widths the game draws with
+    private final HashMap<Float, BasicStroke> strokes = new HashMap<>();
+    private final BasicStroke[] wholeStrokes = new BasicStroke[17]; // Widths 0-16, looked up without boxing
+
+    // Font -> text -> glyphs laid out for glyphContext
+    private final HashMap<Font, HashMap<String, GlyphVector>> glyphs = new HashMap<>();
+    private FontRenderContext glyphContext;
+    private int glyphCount;
+
+    // Strings built from a prefix, a number and a suffix, keyed by their parts
+    private final String[] labelPrefixes = new String[LABEL_SLOTS];
+    private final String[] labelSuffixes = new String[LABEL_SLOTS];
+    private final int[] labelValues = new int[LABEL_SLOTS];
+    private final String[] labels = new String[LABEL_SLOTS];
+
+    // Upper-case copies of menu strings
+    private final HashMap<String, String> upperCase = new HashMap<>();
+
+    public Color color(int red, int green, int blue) {
+        return color(red, green, blue, 255);
+    }
+
+    public Color color(int red, int green, int blue, int alpha) {
+        int argb = (clamp(alpha) << 24) | (clamp(red) << 16) | (clamp(green) << 8) | clamp(blue);
+        int mask = colorKeys.length - 1;
+        int i = mix(argb) & mask;
+        while (colorValues[i] != null) {
+            if (colorKeys[i] == argb) {
+                return colorValues[i];
+            }
+            i = (i + 1) & mask;
+        }
+        Color color = new Color(argb, true);
+        colorKeys[i] = argb;
+        colorValues[i] = color;
+        if (++colorCount * 2 > colorKeys.length) {
+            growColors();
+        }
+        return color;
+    }
+
+    // base with its alpha replaced by alpha (0-1), quantised to 8 bits the way new Color(float...) does
+    public Color fade(Color base, float alpha) {
+        int a = (int) (Math.max(0f, Math.min(1f, alpha)) * 255 + 0.5f);
+        return color(base.getRed(), base.getGreen(), base.getBlue(), a);
+    }
+
+    private void growColors() {
+        int[] oldKeys = colorKeys;
+        Color[] oldValues = colorValues;
+        colorKeys = new int[oldKeys.length * 2];
+        colorValues = new Color[oldValues.length * 2];
+        int mask = colorKeys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != null) {
+                int i = mix(oldKeys[j]) & mask;
+                while (colorValues[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                colorKeys[i] = oldKeys[j];
+                colorValues[i] = oldValues[j];
+            }
+        }
+    }
+
+    private static int clamp(int component) {
+        return Math.max(0, Math.min(255, component));
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public Font font(String family, int style, int size) {
+        Font[] bySize = fonts.get(family);
+        int index = size * 4 + (style & 3);
+        if (bySize == null || index >= bySize.length) {
+            Font[] grown = new Font[Math.max(index + 1, bySize == null ? 0 : bySize.length * 2)];
+            if (bySize != null) {
+                System.arraycopy(bySize, 0, grown, 0, bySize.length);
+            }
+            bySize = grown;
+            fonts.put(family, bySize);
+        }
+        Font font = bySize[index];
+        if (font == null) {
+            font = new Font(family, style, size);
+            bySize[index] = font;
+        }
+        return font;
+    }
+
+    public BasicStroke stroke(float width) {
+        int whole = (int) width;
+        if (whole == width && whole >= 0 && whole < wholeStrokes.length) {
+            if (wholeStrokes[whole] == null) {
+                wholeStrokes[whole] = new BasicStroke(width);
+            }
+            return wholeStrokes[whole];
+        }
+        return strokes.computeIfAbsent(width, BasicStroke::new);
+    }
+
+    // text laid out in font, ready for Graphics2D.drawGlyphVector. Layouts depend on the render
+    // context (antialiasing, transform), so a different context starts the cache over.
+    public GlyphVector glyphs(Font font, String text, FontRenderContext context) {
+        if (!context.equals(glyphContext) || glyphCount >= GLYPH_CAPACITY) {
+            glyphs.clear();
+            glyphContext = context;
+            glyphCount = 0;
+        }
+        HashMap<String, GlyphVector> byText = glyphs.get(font);
+        if (byText == null) {
+            byText = new HashMap<>();
+            glyphs.put(font, byText);
+        }
+        GlyphVector vector = byText.get(text);
+        if (vector == null) {
+            vector = font.createGlyphVector(context, text);
+            byText.put(text, vector);
+            glyphCount++;
+        }
+        return vector;
+    }
+
+    public String number(int value) {
+        return label("", value, "");
+    }
+
+    // prefix + value + suffix, rebuilt only when that slot last held something else. Prefixes and
+    // suffixes are compared by identity, so pass literals or other long-lived strings.
+    public String label(String prefix, int value, String suffix) {
+        int slot = (mix(System.identityHashCode(prefix) * 31 + System.identityHashCode(suffix)) ^ mix(value))
+                & (LABEL_SLOTS - 1);
+        if (labels[slot] == null || labelValues[slot] != value || labelPrefixes[slot] != prefix
+                || labelSuffixes[slot] != suffix) {
+            labels[slot] = prefix + value + suffix;
+            labelPrefixes[slot] = prefix;
+            labelSuffixes[slot] = suffix;
+            labelValues[slot] = value;
+        }
+        return labels[slot];
+    }
+
+    public String upperCase(String text) {
+        String upper = upperCase.get(text);
+        if (upper == null) {
+            upper = text.toUpperCase();
+            upperCase.put(text, upper);
+        }
+        return upper;
+    }
+}
@@ -1,5 +1,10 @@
 import java.awt.Color;
 import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -29,12 +34,44 @@ public class Renderer {
     // position
     private static final int PREVIEW_PIECE_SIZE = 15;
     private static final int PREVIEW_SPACING_Y = 50; // Vertical space between previews
+    // HUD boxes: where their text starts relative to the board, and the box geometry around it.
+    // markHudDirty derives its rectangles from these, so keep the drawing code on them too.
+    private static final int HUD_LEFT_X = 115; // Score/level and hold text start this far left of the board
+    private static final int HUD_NEXT_GAP = 50; // Next text starts this far right of the board
+    private static final int HUD_PAD_X = 10; // Box padding left of the text
+    private static final int HUD_BORDER = 4; // Border thickness, half of it drawn outside the box
+    private static final int SCORE_BOX_WIDTH = 4 + HUD_PAD_X * 8;
+    private static final int PREVIEW_BOX_WIDTH = PREVIEW_PIECE_SIZE * 4 + HUD_PAD_X * 2; // Hold and next boxes
+    private static final int BOARD_TEXT_MARGIN = 80; // How far board text (e.g. a level-up popup at 2x) can run past the walls
+    // Sizes the tile atlas is built for: board tiles and next/hold preview tiles
+    private static final int[] ATLAS_TILE_SIZES = { TILE_SIZE - 2, PREVIEW_PIECE_SIZE - 1 };
+
+    // Walls, grid and locked tiles change only when a board does, so each player's are drawn
+    // into an off-screen layer that is redrawn when Board.getVersion() moves and blitted with
+    // one drawImage per frame. The layer's origin is the top-left wall tile.
+    private static final int LAYER_WIDTH = (Board.WIDTH + 2) * TILE_SIZE;
+    private static final int LAYER_HEIGHT = (Board.VISIBLE_HEIGHT + 1) * TILE_SIZE;
+    private BufferedImage[] boardLayers;
+    private Board[] layerBoards; // Board each layer was drawn from
+    private long[] layerVersions; // Its version at the time
+    private GraphicsConfiguration layerConfig; // Screen configuration the layers were created for
+
+    // Colours, fonts and strings are looked up here instead of being created every frame
+    private final RenderCache cache;
+    private static final Color LEVEL_UP_COLOR = new Color(1.0f, 1.0f, 0.2f);
+    private static final String[] GLOBAL_PAUSE_OPTIONS = {
+            "PRESS P TO RESUME",
+            "PRESS R FOR MAIN MENU",
+            "PRESS ESC FOR MAIN MENU"
+    };
+    private final List<String> gameOverInfo = new ArrayList<>(); // Reused lines of the game over screen
 
     public Renderer(TetrisGame game, Board[] boards, Piece[] pieces,
             ScoreManager[] scoreManagers, GameState[] gameStates,
             Color[] tileColors, GameState globalGameState) {
         this.game = game;
         this.ge = game; // GameEngine methods are available through TetrisGame
+        this.cache = ge.getRenderCache();
         this.boards = boards;
         this.currentPieces = pieces;
         this.scoreManagers = scoreManagers;
@@ -49,6 +86,7 @@ public class Renderer {
     public Renderer(TetrisGame game, Color[] tileColors, GameState globalGameState) {
         this.game = game;
         this.ge = game;
+        this.cache = ge.getRenderCache();
         this.tileColors = tileColors;
         this.globalGameState = globalGameState;
         this.assetManager = new AssetManager(ge);
@@ -58,7 +96,11 @@ public class Renderer {
     }
 
     public void render() {
-        ge.mFrame.setTitle("TETRIS");
+        if (!"TETRIS".equals(ge.mFrame.getTitle())) {
+            ge.mFrame.setTitle("TETRIS");
+        }
+        // Pre-scaled tiles for the board and the next/hold previews
+        assetManager.updateTileAtlas(ATLAS_TILE_SIZES);
         ge.drawImage(assetManager.Background, 0, 0, ge.mWidth, ge.mHeight);
 
         if (globalGameState == null)
@@ -115,42 +157,11 @@ public class Renderer {
 
 
         for (int i = 0; i < game.getActivePlayers(); i++) {
-            int playerAreaOffsetX = i * (PLAYER_TOTAL_WIDTH + PLAYER_AREA_SPACING) + BOARD_LEFT_PADDING;
-            int boardRenderOffsetX = playerAreaOffsetX;
-
-            // 1) Shifting in 2P mode
-            if (game.getActivePlayers() == 2) {
-                if (i == 0) {
-                    boardRenderOffsetX += 120;
-                } else {
-                    boardRenderOffsetX += 230;
-                }
-            }
-            // 2) Center in 1P mode
-            if (game.getActivePlayers() == 1) {
-                boardRenderOffsetX = (ge.mWidth - Board.WIDTH * TILE_SIZE) / 2;
-            }
+            // 1) Shifted in 2P mode, centred in 1P mode
+            int boardRenderOffsetX = getBoardOffsetX(i);
 
-            // 3) Draw board background, grid, walls, pieces (unchanged)
-            ge.changeColor(ge.black);
-            ge.drawSolidRectangle(boardRenderOffsetX, 0,
-                    Board.WIDTH * TILE_SIZE,
-                    Board.VISIBLE_HEIGHT * TILE_SIZE);
-            drawGridLines(i, boardRenderOffsetX);
-
-            int borderOffsetX;
-            if (game.getActivePlayers() == 1) {
-                borderOffsetX = boardRenderOffsetX - TILE_SIZE;
-            } else {
-                int baseWallX = playerAreaOffsetX - BOARD_LEFT_PADDING;
-                if (i == 0)
-                    borderOffsetX = baseWallX + 120;
-                else
-                    borderOffsetX = baseWallX + 230;
-            }
-
-            drawBorderWalls(i, borderOffsetX);
-            drawPlacedTiles(i, boardRenderOffsetX);
+            // 3) Board background, grid, walls and locked tiles, all from the cached layer
+            drawBoardLayer(i, boardRenderOffsetX);
 
             // 2.2a) First draw any row‐flashes 
             drawRowFlashes(boardRenderOffsetX);
@@ -177,21 +188,21 @@ public class Renderer {
 
             // 4) Manually compute (x,y) for Score/Level 
             // Example: bottom-left of the board, with 30px margin
-            int scoreX = boardRenderOffsetX - 115;
+            int scoreX = boardRenderOffsetX - HUD_LEFT_X;
             int scoreY = ge.mHeight - 100; // pick “base Y” near the bottom (adjust as needed)
 
             drawScoreAndLevel(i, scoreX, scoreY);
 
             // 5) Manually compute (x,y) for Hold HUD 
             // Example: top-left of the board, 30px from top border
-            int holdX = boardRenderOffsetX - 115;
+            int holdX = boardRenderOffsetX - HUD_LEFT_X;
             int holdY = 80; // pick Y=50 as “30px below top” (adjust as needed)
 
             drawHoldPiece(i, holdX, holdY);
 
             // 6) Manually compute (x,y) for Next HUD 
             // Example: right edge of board, 30px from top
-            int nextX = boardRenderOffsetX + (Board.WIDTH * TILE_SIZE) + 50;
+            int nextX = boardRenderOffsetX + (Board.WIDTH * TILE_SIZE) + HUD_NEXT_GAP;
             int nextY = 130; // same 30px from top (adjust as needed)
 
             drawNextPieces(i, nextX, nextY);
@@ -200,6 +211,34 @@ public class Renderer {
         }
     }
 
+    // Left edge of player i's board cells in the in-game layout
+    public int getBoardOffsetX(int playerIndex) {
+        if (game.getActivePlayers() == 1) {
+            return (ge.mWidth - Board.WIDTH * TILE_SIZE) / 2;
+        }
+        int playerAreaOffsetX = playerIndex * (PLAYER_TOTAL_WIDTH + PLAYER_AREA_SPACING) + BOARD_LEFT_PADDING;
+        return playerAreaOffsetX + (playerIndex == 0 ? 120 : 230);
+    }
+
+    // Marks the window strip player i's board and everything drawn over it covers: walls, pieces,
+    // popups and countdown/game over text (which can run a little past the walls). effectsMargin
+    // widens it further for row flashes and particles, which spread sideways off the board.
+    public void markBoardDirty(int playerIndex, int effectsMargin) {
+        int margin = BOARD_TEXT_MARGIN + effectsMargin;
+        int wallX = getBoardOffsetX(playerIndex) - TILE_SIZE;
+        ge.markDirty(wallX - margin, 0, PLAYER_BOARD_VISUAL_WIDTH + margin * 2, ge.mHeight);
+    }
+
+    // Marks player i's score/level and hold boxes (left of the board) and next box (right of it),
+    // matching the positions render() draws them at, borders included
+    public void markHudDirty(int playerIndex) {
+        int boardX = getBoardOffsetX(playerIndex);
+        ge.markDirty(boardX - HUD_LEFT_X - HUD_PAD_X - HUD_BORDER / 2, 0,
+                Math.max(SCORE_BOX_WIDTH, PREVIEW_BOX_WIDTH) + HUD_BORDER, ge.mHeight);
+        ge.markDirty(boardX + Board.WIDTH * TILE_SIZE + HUD_NEXT_GAP - HUD_PAD_X - HUD_BORDER / 2, 0,
+                PREVIEW_BOX_WIDTH + HUD_BORDER, ge.mHeight);
+    }
+
     // Helper method to draw a player's full game area
     private void drawPlayerArea(int playerIndex) {
         if (game == null || !game.hasGameStarted()) return; // Should not happen if called from valid context
@@ -222,9 +261,7 @@ public class Renderer {
             return;
         }
 
-        drawGridLines(playerIndex, boardRenderOffsetX); // Pass playerIndex if needed, or just offset
-        drawBorderWalls(playerIndex, boardRenderOffsetX - TILE_SIZE); // Wall is one TILE_SIZE left of board cells
-        drawPlacedTiles(playerIndex, boardRenderOffsetX);
+        drawBoardLayer(playerIndex, boardRenderOffsetX); // Grid, walls and locked tiles
 
         // Only draw dynamic elements if the overall game is not finished.
         // If game is over, we just want the static board and player info.
@@ -252,15 +289,73 @@ public class Renderer {
     private void drawPlayerInfo(int playerIndex, int infoPanelX) {
         // Score and Level
         int scoreY = ge.mHeight - 100;
-        drawScoreAndLevel(playerIndex, infoPanelX - 115, scoreY);
+        drawScoreAndLevel(playerIndex, infoPanelX - HUD_LEFT_X, scoreY);
 
         // Hold piece
         int holdY = 80;
-        drawHoldPiece(playerIndex, infoPanelX - 115, holdY);
+        drawHoldPiece(playerIndex, infoPanelX - HUD_LEFT_X, holdY);
 
         // Next pieces
         int nextY = 130;
-        drawNextPieces(playerIndex, infoPanelX + (Board.WIDTH * TILE_SIZE) + 50 - infoPanelX, nextY);
+        drawNextPieces(playerIndex, infoPanelX + (Board.WIDTH * TILE_SIZE) + HUD_NEXT_GAP - infoPanelX, nextY);
+    }
+
+    // Blits the player's board layer, redrawing it first if the board changed since
+    private void drawBoardLayer(int playerIndex, int boardOffsetX) {
+        if (boards == null || boards[playerIndex] == null)
+            return;
+        if (boardLayers == null || boardLayers.length != boards.length) {
+            boardLayers = new BufferedImage[boards.length];
+            layerBoards = new Board[boards.length];
+            layerVersions = new long[boards.length];
+        }
+        GraphicsConfiguration config = ge.getGraphicsConfiguration();
+        if (config != layerConfig) {
+            // The window moved to another screen: rebuild every layer in that screen's pixel format
+            for (int i = 0; i < boardLayers.length; i++) {
+                if (boardLayers[i] != null) {
+                    boardLayers[i].flush();
+                    boardLayers[i] = null;
+                }
+                layerBoards[i] = null;
+            }
+            layerConfig = config;
+        }
+        Board board = boards[playerIndex];
+        if (boardLayers[playerIndex] == null) {
+            boardLayers[playerIndex] = createLayerImage(config);
+        }
+        if (layerBoards[playerIndex] != board || layerVersions[playerIndex] != board.getVersion()) {
+            redrawBoardLayer(playerIndex);
+            layerBoards[playerIndex] = board;
+            layerVersions[playerIndex] = board.getVersion();
+        }
+        ge.drawImage(boardLayers[playerIndex], boardOffsetX - TILE_SIZE, 0);
+    }
+
+    // Opaque image in the window's pixel format, so blitting it needs no conversion
+    private static BufferedImage createLayerImage(GraphicsConfiguration config) {
+        return config != null
+                ? config.createCompatibleImage(LAYER_WIDTH, LAYER_HEIGHT, Transparency.OPAQUE)
+                : new BufferedImage(LAYER_WIDTH, LAYER_HEIGHT, BufferedImage.TYPE_INT_RGB);
+    }
+
+    // Draws background, grid, walls and locked tiles into the layer with the usual drawing calls
+    private void redrawBoardLayer(int playerIndex) {
+        Graphics2D layerGraphics = boardLayers[playerIndex].createGraphics();
+        layerGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        Graphics2D screenGraphics = ge.setGraphics(layerGraphics);
+        try {
+            int boardOffsetX = TILE_SIZE; // Board cells start one wall tile in
+            ge.changeColor(ge.black);
+            ge.drawSolidRectangle(boardOffsetX, 0, Board.WIDTH * TILE_SIZE, Board.VISIBLE_HEIGHT * TILE_SIZE);
+            drawGridLines(playerIndex, boardOffsetX);
+            drawBorderWalls(playerIndex, 0);
+            drawPlacedTiles(playerIndex, boardOffsetX);
+        } finally {
+            ge.setGraphics(screenGraphics);
+            layerGraphics.dispose();
+        }
     }
 
     private void drawGridLines(int playerIndex, int boardOffsetX) {
@@ -277,15 +372,10 @@ public class Renderer {
         }
     }
 
+    // Walls sit one TILE_SIZE to the left of, right of and below the board cells
     private void drawBorderWalls(int playerIndex, int playerAreaOffsetX) {
         ge.changeColor(ge.white);
 
-        if (game.getActivePlayers() == 1) {
-            // board left edge is centered at (windowWidth - boardWidth) / 2
-            int boardLeftX = (ge.mWidth - Board.WIDTH * TILE_SIZE) / 2;
-            // walls sit one TILE_SIZE to the left of that
-            playerAreaOffsetX = boardLeftX - TILE_SIZE;
-        }
         int boardVisibleHeightPx = Board.VISIBLE_HEIGHT * TILE_SIZE;
         // int boardTotalWidthPx = Board.WIDTH * TILE_SIZE;
 
@@ -307,16 +397,18 @@ public class Renderer {
     private void drawPlacedTiles(int playerIndex, int boardOffsetX) {
         if (boards == null || boards[playerIndex] == null)
             return;
-        int[][] grid = boards[playerIndex].getGrid();
+        Board board = boards[playerIndex];
         for (int y = Board.BUFFER_HEIGHT; y < Board.TOTAL_HEIGHT; y++) {
+            if (board.getRowMask(y) == 0)
+                continue; // Nothing locked in this row
             for (int x = 0; x < Board.WIDTH; x++) {
-                if (grid[x][y] != 0) {
-                    ge.changeColor(tileColors[grid[x][y]]);
+                int color = board.getColor(x, y);
+                if (color != 0) {
+                    ge.changeColor(tileColors[color]);
                     int displayY = y - Board.BUFFER_HEIGHT;
-                    ge.drawImage(assetManager.tilePalette[grid[x][y]],
+                    assetManager.drawTile(color, TILE_SIZE - 2,
                             boardOffsetX + x * TILE_SIZE + 1,
-                            displayY * TILE_SIZE + 1,
-                            TILE_SIZE - 2, TILE_SIZE - 2);
+                            displayY * TILE_SIZE + 1);
                 }
             }
         }
@@ -330,16 +422,16 @@ public class Renderer {
         int pieceColorIndex = currentPieces[playerIndex].getColor();
         ge.changeColor(tileColors[pieceColorIndex]); // Set color for potential fallback if image fails
         int[][] shape = currentPieces[playerIndex].getShape();
+        double renderY = game.getRenderPieceY(playerIndex); // Between rows while falling
 
         for (int[] block : shape) {
             int px = currentPieces[playerIndex].getX() + block[0];
             int py = currentPieces[playerIndex].getY() + block[1];
             if (py >= Board.BUFFER_HEIGHT) {
-                int displayY = py - Board.BUFFER_HEIGHT;
-                ge.drawImage(assetManager.tilePalette[pieceColorIndex],
+                double displayY = renderY + block[1] - Board.BUFFER_HEIGHT;
+                assetManager.drawTile(pieceColorIndex, TILE_SIZE - 2,
                         boardOffsetX + px * TILE_SIZE + 1, // Adjusted X
-                        displayY * TILE_SIZE + 1, // Adjusted Y
-                        TILE_SIZE - 2, TILE_SIZE - 2);
+                        displayY * TILE_SIZE + 1); // Adjusted Y
             }
         }
     }
@@ -351,7 +443,7 @@ public class Renderer {
 
         int[][] ghostBlocks = currentPieces[playerIndex].getGhostCoordinates();
         Color base = tileColors[currentPieces[playerIndex].getColor()];
-        Color translucent = new Color(base.getRed(), base.getGreen(), base.getBlue(), 88);
+        Color translucent = cache.color(base.getRed(), base.getGreen(), base.getBlue(), 88);
         ge.changeColor(translucent);
 
         for (int[] block : ghostBlocks) {
@@ -374,25 +466,25 @@ public class Renderer {
         int yValue = yLabel + 15;
 
         // 1) Draw the semi‐transparent box (exactly as before)
-        int padX = 10, padY = 5;
+        int padX = HUD_PAD_X, padY = 5;
         int lineHeight = 18;
-        int boxW = 4 + padX * 8; // same 4‐tile width + horizontal padding
+        int boxW = SCORE_BOX_WIDTH; // same 4‐tile width + horizontal padding
         int boxH = lineHeight * 2 + padY * 14; // two lines of 18px text + vertical padding
 
         int boxX = x - padX; // extend padX left of x
         int boxY = yLabel - 10 - lineHeight - padY; // top of box sits above the first line
 
-        ge.changeColor(new Color(50, 50, 50, 180));
+        ge.changeColor(cache.color(50, 50, 50, 180));
         ge.drawSolidRectangle(boxX, boxY, boxW, boxH);
         ge.changeColor(ge.white);
-        ge.drawRectangle(boxX, boxY, boxW, boxH, 4);
+        ge.drawRectangle(boxX, boxY, boxW, boxH, HUD_BORDER);
 
         // 2) Draw “SCORE:” label at (x, yLabel−10)
         ge.changeColor(ge.white);
         ge.drawBoldText(x, yLabel - 10, "SCORE:", 18);
 
         // 3) Center the numeric score inside the box
-        String scoreValue = ge.toString(scoreManagers[playerIndex].getScore());
+        String scoreValue = cache.number(scoreManagers[playerIndex].getScore());
         int scoreW = ge.getFontMetrics().stringWidth(scoreValue);
         int scoreX = boxX + (boxW - scoreW) / 2;
         ge.drawText(scoreX, yValue, scoreValue, 18);
@@ -403,7 +495,7 @@ public class Renderer {
 
         ge.drawBoldText(x, yLabel, "LEVEL:", 18);
 
-        String levelValue = ge.toString(scoreManagers[playerIndex].getLevel());
+        String levelValue = cache.number(scoreManagers[playerIndex].getLevel());
         int levelW = ge.getFontMetrics().stringWidth(levelValue);
         int levelX = boxX + (boxW - levelW) / 2;
         ge.drawText(levelX, yValue + 10, levelValue, 18);
@@ -413,7 +505,7 @@ public class Renderer {
         if (gameStates == null || gameStates[playerIndex] == null)
             return;
         long remaining = gameStates[playerIndex].getCountdownRemaining();
-        String text = remaining > 0 ? "" + remaining : "Go!";
+        String text = remaining > 0 ? cache.number((int) remaining) : "Go!";
         int textWidth = ge.getFontMetrics().stringWidth(text); // Requires GameEngine to have font metrics access
         // For simplicity, let's estimate centering for now
         int textX = playerAreaOffsetX + (boardVisualWidth / 2) - (textWidth / 2) - TILE_SIZE; // Approx center of board
@@ -429,8 +521,8 @@ public class Renderer {
         if (scoreManagers == null || scoreManagers[playerIndex] == null)
             return;
         String gameOverText = "Game Over!";
-        String scoreText = "Final Score: " + scoreManagers[playerIndex].getScore();
-        String levelText = "Level: " + scoreManagers[playerIndex].getLevel();
+        String scoreText = cache.label("Final Score: ", scoreManagers[playerIndex].getScore(), "");
+        String levelText = cache.label("Level: ", scoreManagers[playerIndex].getLevel(), "");
 
         // Approx centering
         int textX = playerAreaOffsetX + TILE_SIZE * 2; // Indent into player's board area
@@ -446,7 +538,7 @@ public class Renderer {
     private void drawGlobalPauseScreen() {
         // 1) Background (same as before) 
         ge.drawImage(assetManager.Background, 0, 0, ge.mWidth, ge.mHeight);
-        ge.changeColor(new Color(0, 0, 0, 160));
+        ge.changeColor(cache.color(0, 0, 0, 160));
         ge.drawSolidRectangle(0, 0, ge.mWidth, ge.mHeight);
 
         // 2) Create centered panel (same dimensions as ESC menu) 
@@ -455,7 +547,7 @@ public class Renderer {
         int panelX = (ge.mWidth - panelW) / 2;
         int panelY = (ge.mHeight - panelH) / 2;
 
-        ge.changeColor(new Color(50, 50, 50, 200));
+        ge.changeColor(cache.color(50, 50, 50, 200));
         ge.drawSolidRectangle(panelX, panelY, panelW, panelH);
         ge.changeColor(ge.white);
         ge.drawRectangle(panelX, panelY, panelW, panelH, 4);
@@ -472,11 +564,7 @@ public class Renderer {
         ge.drawBoldText(titleX, titleY, title, titleFontSize);
 
         // 4) Draw options with same box dimensions as ESC menu 
-        String[] options = {
-                "PRESS P TO RESUME",
-                "PRESS R FOR MAIN MENU",
-                "PRESS ESC FOR MAIN MENU"
-        };
+        String[] options = GLOBAL_PAUSE_OPTIONS;
 
         int optionFontSize = 20;
         ge.drawText(0, 0, "", optionFontSize);
@@ -504,7 +592,7 @@ public class Renderer {
             int baselineY = firstBaselineY + i * (boxH + spacing);
             int boxY = baselineY - textH - padY;
 
-            ge.changeColor(new Color(80, 80, 80, 200));
+            ge.changeColor(cache.color(80, 80, 80, 200));
             ge.drawSolidRectangle(boxX, boxY, boxW, boxH);
             ge.changeColor(ge.white);
             ge.drawRectangle(boxX, boxY, boxW, boxH, 4);
@@ -519,7 +607,7 @@ public class Renderer {
     private void drawEscPauseMenu() {
         // 1) Full‐window background + dimming overlay 
         ge.drawImage(assetManager.Background, 0, 0, ge.mWidth, ge.mHeight);
-        ge.changeColor(new Color(0, 0, 0, 160)); // semi‐transparent black
+        ge.changeColor(cache.color(0, 0, 0, 160)); // semi‐transparent black
         ge.drawSolidRectangle(0, 0, ge.mWidth, ge.mHeight);
 
         // 2) Enlarge the pause‐panel by +100px in both dimensions 
@@ -529,7 +617,7 @@ public class Renderer {
         int panelX = (ge.mWidth - panelW) / 2;
         int panelY = (ge.mHeight - panelH) / 2;
 
-        ge.changeColor(new Color(50, 50, 50, 200)); // dark gray @ alpha 200
+        ge.changeColor(cache.color(50, 50, 50, 200)); // dark gray @ alpha 200
         ge.drawSolidRectangle(panelX, panelY, panelW, panelH);
         ge.changeColor(ge.white);
         ge.drawRectangle(panelX, panelY, panelW, panelH, 4); // 4px white border
@@ -550,11 +638,7 @@ public class Renderer {
         String[] options = globalGameState.getPauseMenuOptions(); // still ["Resume","Help","Quit"]
         int selected = globalGameState.pauseMenuSelection;
 
-        // Instead of modifying options[], copy each label to uppercase for drawing:
-        String[] display = new String[options.length];
-        for (int i = 0; i < options.length; i++) {
-            display[i] = options[i].toUpperCase();
-        }
+        // Instead of modifying options[], draw an uppercase copy of each label (made once, then cached)
 
         int optionFontSize = 28;
         ge.drawText(0, 0, "", optionFontSize); // force FontMetrics to that size
@@ -566,8 +650,8 @@ public class Renderer {
 
         // Compute maximum text width among display[] for consistent box widths
         int maxTextW = 0;
-        for (String opt : display) {
-            maxTextW = Math.max(maxTextW, fm.stringWidth(opt));
+        for (String opt : options) {
+            maxTextW = Math.max(maxTextW, fm.stringWidth(cache.upperCase(opt)));
         }
         int boxW = maxTextW + padX * 2;
         int boxH = textH + padY * 2;
@@ -575,8 +659,8 @@ public class Renderer {
         // First option’s baseline sits 30px below the title’s baseline:
         int firstBaselineY = titleY + 85;
 
-        for (int i = 0; i < display.length; i++) {
-            String optText = display[i];
+        for (int i = 0; i < options.length; i++) {
+            String optText = cache.upperCase(options[i]);
             int textW = fm.stringWidth(optText);
 
             // Center the box X inside panel:
@@ -587,9 +671,9 @@ public class Renderer {
 
             // 4a) Background (highlight if selected)
             if (i == selected) {
-                ge.changeColor(new Color(180, 200, 0, 200)); // yellow–green @ alpha 200
+                ge.changeColor(cache.color(180, 200, 0, 200)); // yellow–green @ alpha 200
             } else {
-                ge.changeColor(new Color(80, 80, 80, 200)); // darker gray
+                ge.changeColor(cache.color(80, 80, 80, 200)); // darker gray
             }
             ge.drawSolidRectangle(boxX, boxY, boxW, boxH);
 
@@ -609,7 +693,7 @@ public class Renderer {
     private void drawOverallGameOverScreen() {
         // 1) Full-window background + dimming overlay 
         ge.drawImage(assetManager.Background, 0, 0, ge.mWidth, ge.mHeight);
-        ge.changeColor(new Color(0, 0, 0, 160)); // semi-transparent black
+        ge.changeColor(cache.color(0, 0, 0, 160)); // semi-transparent black
         ge.drawSolidRectangle(0, 0, ge.mWidth, ge.mHeight);
 
         // 2) Create centered panel 
@@ -618,7 +702,7 @@ public class Renderer {
         int panelX = (ge.mWidth - panelW) / 2;
         int panelY = (ge.mHeight - panelH) / 2;
 
-        ge.changeColor(new Color(50, 50, 50, 200));
+        ge.changeColor(cache.color(50, 50, 50, 200));
         ge.drawSolidRectangle(panelX, panelY, panelW, panelH);
         ge.changeColor(ge.white);
         ge.drawRectangle(panelX, panelY, panelW, panelH, 4);
@@ -635,11 +719,12 @@ public class Renderer {
         ge.drawBoldText(titleX, titleY, title, titleFontSize);
 
         // 4) Draw final scores or winner 
-        List<String> info = new ArrayList<>();
+        List<String> info = gameOverInfo;
+        info.clear();
 
         if (game.getActivePlayers() == 1) {
-            info.add("FINAL SCORE: " + scoreManagers[0].getScore());
-            info.add("LEVEL: " + scoreManagers[0].getLevel());
+            info.add(cache.label("FINAL SCORE: ", scoreManagers[0].getScore(), ""));
+            info.add(cache.label("LEVEL: ", scoreManagers[0].getLevel(), ""));
         } else {
             // Find winner
             int highestScore = -1;
@@ -651,8 +736,8 @@ public class Renderer {
                     winnerIndex = i;
                 }
             }
-            info.add("WINNER: PLAYER " + (winnerIndex + 1));
-            info.add("SCORE: " + highestScore);
+            info.add(cache.label("WINNER: PLAYER ", winnerIndex + 1, ""));
+            info.add(cache.label("SCORE: ", highestScore, ""));
         }
         info.add("PRESS R TO RETURN TO MENU");
 
@@ -669,7 +754,8 @@ public class Renderer {
 
         // Calculate box dimensions
         int maxTextW = 0;
-        for (String text : info) {
+        for (int i = 0; i < info.size(); i++) {
+            String text = info.get(i);
             maxTextW = Math.max(maxTextW, fm.stringWidth(text));
         }
         int boxW = maxTextW + padX * 2;
@@ -686,9 +772,9 @@ public class Renderer {
 
             // Use green highlight for "PRESS R TO RETURN TO MENU"
             if (i == info.size() - 1) { // Last option
-                ge.changeColor(new Color(180, 200, 0, 180)); // Same green as selected menu items
+                ge.changeColor(cache.color(180, 200, 0, 180)); // Same green as selected menu items
             } else {
-                ge.changeColor(new Color(80, 80, 80, 200));
+                ge.changeColor(cache.color(80, 80, 80, 200));
             }
             ge.drawSolidRectangle(boxX, boxY, boxW, boxH);
             ge.changeColor(ge.white);
@@ -705,7 +791,7 @@ public class Renderer {
     private void drawPlayerPauseMenu(int playerIndex, int playerAreaOffsetX, int boardVisualWidth) {
         if (gameStates == null || gameStates[playerIndex] == null)
             return;
-        String text = "Player " + (playerIndex + 1) + " Paused";
+        String text = cache.label("Player ", playerIndex + 1, " Paused");
         int textWidth = ge.getFontMetrics().stringWidth(text);
         int textX = playerAreaOffsetX + (boardVisualWidth / 2) - (textWidth / 2) - TILE_SIZE;
 
@@ -721,7 +807,7 @@ public class Renderer {
     private void drawHelpScreen() {
         // Draw background image and overlay
         ge.drawImage(assetManager.Background, 0, 0, ge.mWidth, ge.mHeight);
-        ge.changeColor(new Color(0, 0, 0, 160)); // semi-transparent black
+        ge.changeColor(cache.color(0, 0, 0, 160)); // semi-transparent black
         ge.drawSolidRectangle(0, 0, ge.mWidth, ge.mHeight);
 
         // Create centered panel like other menus
@@ -730,7 +816,7 @@ public class Renderer {
         int panelX = (ge.mWidth - panelW) / 2;
         int panelY = 30; // Changed from panelH - 370 to fixed 30px from top
 
-        ge.changeColor(new Color(50, 50, 50, 200));
+        ge.changeColor(cache.color(50, 50, 50, 200));
         ge.drawSolidRectangle(panelX, panelY, panelW, panelH);
         ge.changeColor(ge.white);
         ge.drawRectangle(panelX, panelY, panelW, panelH, 4);
@@ -783,18 +869,18 @@ public class Renderer {
         // 1) Determine vertical layout:
         // - yLabel is where “NEXT:” text baseline will sit (you passed this in).
         // - After that, previews stack downward with PREVIEW_SPACING_Y each.
-        List<Integer> nextPieceTypes = currentPieces[playerIndex].getNextPieces();
+        int previewCount = currentPieces[playerIndex].getPreviewSize();
 
         // 2) Calculate the box dimensions
         FontMetrics fm = ge.getFontMetrics();
         int labelH = fm.getAscent(); // height of “NEXT:” text
 
-        int padX = 10, padY = 5;
+        int padX = HUD_PAD_X, padY = 5;
         // width = 4 preview tiles + horizontal padding
-        int boxW = PREVIEW_PIECE_SIZE * 4 + padX * 2;
+        int boxW = PREVIEW_BOX_WIDTH;
         // compute total preview height (each preview is PREVIEW_PIECE_SIZE*2.5 tall):
-        int previewsH = (int) (PREVIEW_PIECE_SIZE * 2.5) * nextPieceTypes.size()
-                + PREVIEW_SPACING_Y * (nextPieceTypes.size() - 1);
+        int previewsH = (int) (PREVIEW_PIECE_SIZE * 2.5) * previewCount
+                + PREVIEW_SPACING_Y * (previewCount - 1);
         // total height = label + previews + vertical padding (top/bottom + between
         // label & first preview)
         int boxH = labelH
@@ -807,19 +893,19 @@ public class Renderer {
         int boxY = yLabel - 10 - labelH - padY;
 
         // 4) Draw semi-transparent background rectangle
-        ge.changeColor(new Color(50, 50, 50, 180));
+        ge.changeColor(cache.color(50, 50, 50, 180));
         ge.drawSolidRectangle(boxX, boxY, boxW, boxH);
 
         // 5) Draw white border around it
         ge.changeColor(ge.white);
-        ge.drawRectangle(boxX, boxY, boxW, boxH, 4);
+        ge.drawRectangle(boxX, boxY, boxW, boxH, HUD_BORDER);
 
         // 6) Draw the “NEXT:” label
         ge.changeColor(ge.white);
         ge.drawBoldText(x, yLabel - 5, "NEXT:", 18);
 
         // 7) Draw each preview box & tile graphic:
-        for (int i = 0; i < nextPieceTypes.size(); i++) {
+        for (int i = 0; i < previewCount; i++) {
             int previewY = yLabel + padY + (i * PREVIEW_SPACING_Y);
 
             // background for the tile area
@@ -829,7 +915,7 @@ public class Renderer {
                     (int) (PREVIEW_PIECE_SIZE * 2.5));
 
             // draw the tetromino preview
-            drawPreviewPiece(nextPieceTypes.get(i), x, previewY);
+            drawPreviewPiece(currentPieces[playerIndex].peekNextPieceType(i), x, previewY);
         }
     }
 
@@ -844,17 +930,17 @@ public class Renderer {
         // 1) Draw a background box behind “HOLD” + preview
         FontMetrics fm = ge.getFontMetrics();
         int textH = fm.getAscent(); // height of “HOLD:” text
-        int padX = 10, padY = 5;
-        int boxW = PREVIEW_PIECE_SIZE * 4 + padX * 2; // four previews across + padding
+        int padX = HUD_PAD_X, padY = 5;
+        int boxW = PREVIEW_BOX_WIDTH; // four previews across + padding
         int boxH = textH + (int) (PREVIEW_PIECE_SIZE * 2.5) + padY * 6;
 
         int boxX = x - padX;
         int boxY = yLabel - 10 - textH - padY; // top of box sits above “HOLD:” text
 
-        ge.changeColor(new Color(50, 50, 50, 180));
+        ge.changeColor(cache.color(50, 50, 50, 180));
         ge.drawSolidRectangle(boxX, boxY, boxW, boxH);
         ge.changeColor(ge.white);
-        ge.drawRectangle(boxX, boxY, boxW, boxH, 4);
+        ge.drawRectangle(boxX, boxY, boxW, boxH, HUD_BORDER);
 
         // 2) Draw the “HOLD:” label
         ge.changeColor(ge.white);
@@ -890,11 +976,7 @@ public class Renderer {
             int blockX = x + offsetX + (block[0] * PREVIEW_PIECE_SIZE);
             int blockY = y + offsetY + (block[1] * PREVIEW_PIECE_SIZE);
             // Use tile assets instead of solid rectangles
-            ge.drawImage(assetManager.tilePalette[pieceColorIndex],
-                    blockX,
-                    blockY,
-                    PREVIEW_PIECE_SIZE - 1,
-                    PREVIEW_PIECE_SIZE - 1);
+            assetManager.drawTile(pieceColorIndex, PREVIEW_PIECE_SIZE - 1, blockX, blockY);
         }
     }
 
@@ -932,7 +1014,7 @@ public class Renderer {
         int boxH = textH + padY * 2;
 
         for (int i = 0; i < options.length; i++) {
-            String opt = options[i].toUpperCase(); // Convert to uppercase
+            String opt = cache.upperCase(options[i]); // Convert to uppercase
             int textW = fm.stringWidth(opt);
             int boxW = textW + padX * 2;
             int boxX = (ge.mWidth - boxW) / 2;
@@ -940,15 +1022,15 @@ public class Renderer {
 
             // background: dark grey vs green-yellow
             if (i == selected) {
-                ge.changeColor(new Color(180, 200, 0, 180)); // yellow-green, alpha 180
+                ge.changeColor(cache.color(180, 200, 0, 180)); // yellow-green, alpha 180
             } else {
-                ge.changeColor(new Color(50, 50, 50, 180)); // grey, alpha 180
+                ge.changeColor(cache.color(50, 50, 50, 180)); // grey, alpha 180
             }
             ge.drawSolidRectangle(boxX, boxY, boxW, boxH);
 
             // border: bright yellow-green vs white
             if (i == selected) {
-                ge.changeColor(new Color(240, 255, 0)); // solid yellow-green
+                ge.changeColor(cache.color(240, 255, 0)); // solid yellow-green
             } else {
                 ge.changeColor(ge.white);
             }
@@ -967,8 +1049,8 @@ public class Renderer {
     // Draw a glowing, expanding flash on each cleared row
     private void drawRowFlashes(int boardOffsetX) {
         List<?> rawFlashes = game.getRowFlashes();
-        for (Object obj : rawFlashes) {
-            TetrisGame.RowFlash f = (TetrisGame.RowFlash) obj;
+        for (int i = 0; i < rawFlashes.size(); i++) {
+            TetrisGame.RowFlash f = (TetrisGame.RowFlash) rawFlashes.get(i);
 
             float alpha = f.alpha();
             double scale = f.heightScale();
@@ -987,14 +1069,17 @@ public class Renderer {
 
             // 1) Draw the inner white core (brightest)
             // - full alpha peak, but we modulate by f.alpha()
-            Color core = new Color(255, 255, 255, (int) (255 * alpha));
+            Color core = cache.color(255, 255, 255, (int) (255 * alpha));
             ge.changeColor(core);
             ge.drawSolidRectangle(drawX, drawY, drawW, drawH);
 
             // 2) Draw a slightly larger, pale‐blue “glow” behind it
             // - use the same alpha but lower opacity (e.g. 50% of core)
+            // - skipped when the effects budget is low
+            if (!game.getEffectsBudget().allowsGlow())
+                continue;
             int glowAlpha = (int) (128 * alpha);
-            Color glow = new Color(180, 220, 255, glowAlpha);
+            Color glow = cache.color(180, 220, 255, glowAlpha);
             ge.changeColor(glow);
 
             // expand 2px on all sides for the glow
@@ -1004,17 +1089,15 @@ public class Renderer {
 
     // Draw the previously spawned Particle squares (white, flying sideways)
     private void drawParticles(int boardOffsetX) {
-        List<?> rawList = game.getParticles();
-        for (Object obj : rawList) {
-            TetrisGame.Particle p = (TetrisGame.Particle) obj;
-
-            float alpha = p.alpha();
-            Color c = new Color(p.color.getRed(), p.color.getGreen(), p.color.getBlue(),
-                    (int) (alpha * 255f));
-            ge.changeColor(c);
-
-            double half = p.size / 2.0;
-            ge.drawSolidRectangle(p.x - half, p.y - half, p.size, p.size);
+        ParticlePool particles = game.getParticles();
+        double interpolation = game.getInterpolation();
+        for (int i = 0, n = particles.size(); i < n; i++) {
+            ge.changeColor(particles.getColor(i)); // Shared, pre-faded colour
+
+            int size = particles.getSize(i);
+            double half = size / 2.0;
+            ge.drawSolidRectangle(particles.renderX(i, interpolation) - half,
+                    particles.renderY(i, interpolation) - half, size, size);
         }
     }
 
@@ -1022,24 +1105,30 @@ public class Renderer {
         if (boards == null || boards[playerIndex] == null) return;
         
         // Draw score popups
-        for (ScorePopup popup : boards[playerIndex].getScorePopups()) {
-            Color textColor = new Color(1.0f, 1.0f, 1.0f, popup.getAlpha());
+        List<ScorePopup> scorePopups = game.getScorePopups(playerIndex);
+        for (int i = 0; i < scorePopups.size(); i++) {
+            ScorePopup popup = scorePopups.get(i);
+            Color textColor = cache.fade(Color.WHITE, popup.getAlpha());
             ge.changeColor(textColor);
             
             int centerX = boardOffsetX + (Board.WIDTH * TILE_SIZE) / 2;
             int fontSize = 18;
             ge.drawBoldText(centerX - 30, popup.getY(), popup.getScoreType(), fontSize);
-            ge.drawBoldText(centerX - 20, popup.getY() + 20, String.valueOf(popup.getScoreValue()), fontSize);
+            ge.drawBoldText(centerX - 20, popup.getY() + 20, cache.number(popup.getScoreValue()), fontSize);
         }
         
         // Draw level up popups
-        for (LevelUpPopup popup : boards[playerIndex].getLevelUpPopups()) {
-            Color textColor = new Color(1.0f, 1.0f, 0.2f, popup.getAlpha());
+        List<LevelUpPopup> levelUpPopups = game.getLevelUpPopups(playerIndex);
+        for (int i = 0; i < levelUpPopups.size(); i++) {
+            LevelUpPopup popup = levelUpPopups.get(i);
+            Color textColor = cache.fade(LEVEL_UP_COLOR, popup.getAlpha());
             ge.changeColor(textColor);
             
             int centerX = boardOffsetX + (Board.WIDTH * TILE_SIZE) / 2;
-            int fontSize = (int)(24 * popup.getScale());
-            String text = "LEVEL " + popup.getLevel() + "!";
+            // Fixed size when the effects budget is low, so the font isn't re-derived every frame
+            double scale = game.getEffectsBudget().allowsPopupAnimation() ? popup.getScale() : 1.0;
+            int fontSize = (int)(24 * scale);
+            String text = cache.label("LEVEL ", popup.getLevel(), "!");
             ge.drawBoldText(centerX - (fontSize * 2), popup.getY(), text, fontSize);
         }
     }
@@ -0,0 +1,166 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// A recorded match: the settings and seed it was reset with, plus every input and time step that
+// reached the MatchEngine, in order. MatchEngine is deterministic, so feeding the same stream to
+// a fresh engine plays the match again exactly.
+//
+// The stream is a sequence of records, each starting with a varint whose low 3 bits are the kind
+// and whose remaining bits are its argument:
+//   UPDATES n     n calls to update(dt) with the current dt
+//   COUNTDOWNS n  n calls to updateCountdowns(dt) with the current dt
+//   DT            the current dt changes; followed by its 8 IEEE-754 bytes
+//   INPUT a       one input; a = (action << 4) | player
+// Time is never stored as a timestamp: the UPDATES run between two inputs is the delta. With a
+// fixed timestep the dt is written once, and an input usually costs two or three bytes.
+public final class Replay {
+    static final int KIND_UPDATES = 0;
+    static final int KIND_COUNTDOWNS = 1;
+    static final int KIND_DT = 2;
+    static final int KIND_INPUT = 3;
+    static final int KIND_BITS = 3;
+    static final int PLAYER_BITS = 4;
+    public static final int MAX_PLAYERS = 1 << PLAYER_BITS;
+
+    // Input actions, one per MatchEngine input method
+    public static final int MOVE_LEFT = 0;
+    public static final int MOVE_RIGHT = 1;
+    public static final int MOVE_DOWN = 2;
+    public static final int SOFT_DROP_STEP = 3;
+    public static final int ROTATE_CW = 4;
+    public static final int ROTATE_CCW = 5;
+    public static final int HARD_DROP = 6;
+    public static final int HOLD = 7;
+    public static final int SOFT_DROP_ON = 8;
+    public static final int SOFT_DROP_OFF = 9;
+    public static final int COUNTDOWN = 10;
+
+    private static final int MAGIC = 0x5452504C; // "TRPL"
+    private static final int VERSION = 1;
+
+    private final int playerCount;
+    private final Randomizer.Type randomizer;
+    private final GameMode mode;
+    private final boolean countdown;
+    private final long seed;
+    private final byte[] stream;
+    private final int length;
+
+    Replay(int playerCount, Randomizer.Type randomizer, GameMode mode, boolean countdown, long seed,
+            byte[] stream, int length) {
+        this.playerCount = playerCount;
+        this.randomizer = randomizer;
+        this.mode = mode;
+        this.countdown = countdown;
+        this.seed = seed;
+        this.stream = stream;
+        this.length = length;
+    }
+
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeByte(playerCount);
+        data.writeByte(randomizer.ordinal());
+        data.writeByte(mode.ordinal());
+        data.writeBoolean(countdown);
+        data.writeLong(seed);
+        data.writeInt(length);
+        data.write(stream, 0, length);
+        data.flush();
+    }
+
+    public static Replay read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a replay");
+        }
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported replay version " + version);
+        }
+        int playerCount = data.readUnsignedByte();
+        int randomizerIndex = data.readUnsignedByte();
+        int modeIndex = data.readUnsignedByte();
+        if (randomizerIndex >= Randomizer.Type.values().length || modeIndex >= GameMode.values().length) {
+            throw new IOException("Corrupt replay");
+        }
+        Randomizer.Type randomizer = Randomizer.Type.values()[randomizerIndex];
+        GameMode mode = GameMode.values()[modeIndex];
+        boolean countdown = data.readBoolean();
+        long seed = data.readLong();
+        int length = data.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupt replay");
+        }
+        byte[] stream = new byte[length];
+        data.readFully(stream);
+        return new Replay(playerCount, randomizer, mode, countdown, seed, stream, length);
+    }
+
+    public void save(Path path) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            write(out);
+        }
+    }
+
+    public static Replay load(Path path) throws IOException {
+        return read(new ByteArrayInputStream(Files.readAllBytes(path)));
+    }
+
+    public byte[] toByteArray() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length + 32);
+        try {
+            write(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // In-memory streams don't fail
+        }
+        return out.toByteArray();
+    }
+
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    public Randomizer.Type getRandomizer() {
+        return randomizer;
+    }
+
+    public GameMode getMode() {
+        return mode;
+    }
+
+    public boolean hasCountdown() {
+        return countdown;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    byte[] getStream() {
+        return stream;
+    }
+
+    int getStreamLength() {
+        return length;
+    }
+
+    // Unsigned LEB128: 7 bits per byte, high bit set on every byte but the last
+    static int writeVarint(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+}
@@ -0,0 +1,176 @@
+// Plays a Replay back into a MatchEngine, either as fast as possible (runToEnd) or paced by the
+// time steps it was recorded with (advance), e.g. from the game loop so the renderer can show it.
+public class ReplayPlayer {
+    private final Replay replay;
+    private final MatchEngine engine;
+    private final byte[] stream;
+    private final int length;
+
+    private int position;
+    private double dt;
+    private int runKind;
+    private long runRemaining; // Steps left in the current run
+    private double pendingTime; // Real time not yet spent on steps (advance only)
+    private long steps;
+
+    // engine must have the replay's player count and randomizer
+    public ReplayPlayer(Replay replay, MatchEngine engine) {
+        if (engine.getPlayerCount() != replay.getPlayerCount() || engine.getRandomizer() != replay.getRandomizer()) {
+            throw new IllegalArgumentException("Engine doesn't match the replay's players or randomizer");
+        }
+        this.replay = replay;
+        this.engine = engine;
+        this.stream = replay.getStream();
+        this.length = replay.getStreamLength();
+    }
+
+    public ReplayPlayer(Replay replay) {
+        this(replay, new MatchEngine(replay.getPlayerCount(), replay.getRandomizer()));
+    }
+
+    // Resets the engine to the recorded start of the match
+    public void start() {
+        engine.reset(replay.getMode(), replay.hasCountdown(), replay.getSeed());
+        position = 0;
+        dt = 0;
+        runRemaining = 0;
+        pendingTime = 0;
+        steps = 0;
+    }
+
+    // Applies inputs up to and including the next time step. Returns false once the replay is over.
+    public boolean step() {
+        if (!readUntilStep()) {
+            return false;
+        }
+        runRemaining--;
+        steps++;
+        if (runKind == Replay.KIND_UPDATES) {
+            engine.update(dt);
+        } else {
+            engine.updateCountdowns(dt);
+        }
+        return true;
+    }
+
+    // Plays the whole replay without pacing and returns the number of time steps
+    public long runToEnd() {
+        while (step()) {
+            // Nothing to do between steps
+        }
+        return steps;
+    }
+
+    // Plays as many recorded steps as fit into elapsed seconds of real time, carrying the rest over
+    public boolean advance(double elapsed) {
+        pendingTime += elapsed;
+        while (readUntilStep()) {
+            if (pendingTime < dt) {
+                return true;
+            }
+            pendingTime -= dt;
+            step();
+        }
+        return false;
+    }
+
+    public boolean isFinished() {
+        return runRemaining == 0 && position >= length;
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    public MatchEngine getEngine() {
+        return engine;
+    }
+
+    public Replay getReplay() {
+        return replay;
+    }
+
+    // Applies records until a time step is pending; false if the stream ends first
+    private boolean readUntilStep() {
+        while (runRemaining == 0) {
+            if (position >= length) {
+                return false;
+            }
+            long header = readVarint();
+            int kind = (int) (header & ((1 << Replay.KIND_BITS) - 1));
+            long argument = header >>> Replay.KIND_BITS;
+            switch (kind) {
+                case Replay.KIND_UPDATES:
+                case Replay.KIND_COUNTDOWNS:
+                    runKind = kind;
+                    runRemaining = argument;
+                    break;
+                case Replay.KIND_DT:
+                    long bits = 0;
+                    for (int i = 0; i < 8; i++) {
+                        bits |= (stream[position++] & 0xFFL) << (8 * i);
+                    }
+                    dt = Double.longBitsToDouble(bits);
+                    break;
+                case Replay.KIND_INPUT:
+                    applyInput((int) (argument & (Replay.MAX_PLAYERS - 1)), (int) (argument >>> Replay.PLAYER_BITS));
+                    break;
+                default:
+                    throw new IllegalStateException("Corrupt replay: record kind " + kind + " at byte " + position);
+            }
+        }
+        return true;
+    }
+
+    private void applyInput(int player, int action) {
+        switch (action) {
+            case Replay.MOVE_LEFT:
+                engine.moveLeft(player);
+                break;
+            case Replay.MOVE_RIGHT:
+                engine.moveRight(player);
+                break;
+            case Replay.MOVE_DOWN:
+                engine.moveDown(player);
+                break;
+            case Replay.SOFT_DROP_STEP:
+                engine.softDropStep(player);
+                break;
+            case Replay.ROTATE_CW:
+                engine.rotate(player, true);
+                break;
+            case Replay.ROTATE_CCW:
+                engine.rotate(player, false);
+                break;
+            case Replay.HARD_DROP:
+                engine.hardDrop(player);
+                break;
+            case Replay.HOLD:
+                engine.hold(player);
+                break;
+            case Replay.SOFT_DROP_ON:
+                engine.setSoftDropping(player, true);
+                break;
+            case Replay.SOFT_DROP_OFF:
+                engine.setSoftDropping(player, false);
+                break;
+            case Replay.COUNTDOWN:
+                engine.startCountdown(player);
+                break;
+            default:
+                throw new IllegalStateException("Corrupt replay: action " + action);
+        }
+    }
+
+    private long readVarint() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = stream[position++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
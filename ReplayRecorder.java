@@ -0,0 +1,114 @@
+import java.util.Arrays;
+
+// Captures what a MatchEngine is fed, see Replay for the format. Attach with
+// MatchEngine.setRecorder(); every reset starts a new recording. The buffer grows by doubling,
+// so recording a long match costs a handful of array copies and nothing per input.
+public class ReplayRecorder {
+    private static final int MAX_RECORD_BYTES = 10 + 8; // Longest varint plus a dt
+
+    private byte[] buffer = new byte[4096];
+    private int position;
+
+    private int playerCount;
+    private Randomizer.Type randomizer;
+    private GameMode mode;
+    private boolean countdown;
+    private long seed;
+    private boolean started;
+
+    private double dt = Double.NaN; // dt of the pending run, NaN until the first one
+    private int runKind = -1; // KIND_UPDATES or KIND_COUNTDOWNS while a run is open
+    private long runLength;
+
+    void begin(int playerCount, Randomizer.Type randomizer, GameMode mode, boolean countdown, long seed) {
+        if (playerCount > Replay.MAX_PLAYERS) {
+            throw new IllegalArgumentException("Replays hold at most " + Replay.MAX_PLAYERS + " players");
+        }
+        this.playerCount = playerCount;
+        this.randomizer = randomizer;
+        this.mode = mode;
+        this.countdown = countdown;
+        this.seed = seed;
+        this.started = true;
+        position = 0;
+        dt = Double.NaN;
+        runKind = -1;
+        runLength = 0;
+    }
+
+    void update(double dt) {
+        step(Replay.KIND_UPDATES, dt);
+    }
+
+    void countdowns(double dt) {
+        step(Replay.KIND_COUNTDOWNS, dt);
+    }
+
+    void input(int player, int action) {
+        if (!started) {
+            return;
+        }
+        flushRun();
+        ensureCapacity();
+        position = Replay.writeVarint(buffer, position,
+                ((long) ((action << Replay.PLAYER_BITS) | player) << Replay.KIND_BITS) | Replay.KIND_INPUT);
+    }
+
+    // Consecutive steps of the same kind and dt collapse into one run record
+    private void step(int kind, double dt) {
+        if (!started) {
+            return;
+        }
+        if (Double.doubleToLongBits(dt) != Double.doubleToLongBits(this.dt)) {
+            flushRun();
+            ensureCapacity();
+            position = Replay.writeVarint(buffer, position, Replay.KIND_DT);
+            long bits = Double.doubleToLongBits(dt);
+            for (int i = 0; i < 8; i++) {
+                buffer[position++] = (byte) (bits >>> (8 * i));
+            }
+            this.dt = dt;
+        } else if (kind != runKind) {
+            flushRun();
+        }
+        runKind = kind;
+        runLength++;
+    }
+
+    private void flushRun() {
+        if (runLength > 0) {
+            ensureCapacity();
+            position = Replay.writeVarint(buffer, position, (runLength << Replay.KIND_BITS) | runKind);
+        }
+        runKind = -1;
+        runLength = 0;
+    }
+
+    private void ensureCapacity() {
+        if (position + MAX_RECORD_BYTES > buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+    }
+
+    public boolean isRecording() {
+        return started;
+    }
+
+    // The match so far; recording carries on afterwards
+    public Replay toReplay() {
+        if (!started) {
+            throw new IllegalStateException("Nothing recorded yet");
+        }
+        int runKindBefore = runKind;
+        long runLengthBefore = runLength;
+        int positionBefore = position;
+        flushRun();
+        Replay replay = new Replay(playerCount, randomizer, mode, countdown, seed,
+                Arrays.copyOf(buffer, position), position);
+        // Leave the open run open so later steps keep extending it
+        position = positionBefore;
+        runKind = runKindBefore;
+        runLength = runLengthBefore;
+        return replay;
+    }
+}
@@ -4,7 +4,6 @@ public class ScoreManager {
     private int totalLinesCleared;
     private static final int MAX_LEVEL = 15;
     private static final int LINES_PER_LEVEL = 10;
-    private Board board;
 
     // Points for different line clears based on guidelines
     public static final int[] LINE_CLEAR_POINTS = {
@@ -15,8 +14,7 @@ public class ScoreManager {
         800   // Tetris - 800 points
     };
 
-    public ScoreManager(Board board) {
-        this.board = board;
+    public ScoreManager() {
         // Initialise score manager with default values
         reset();
     }
@@ -40,13 +38,9 @@ public class ScoreManager {
 
     private void updateLevel() {
         // Level increases every 10 lines (can also be adjusted based on starting level)
-        int oldLevel = currentLevel;
+        // Callers compare getLevel() before and after to spot a level up
         int newLevel = (totalLinesCleared / LINES_PER_LEVEL) + 1;
         currentLevel = Math.min(newLevel, MAX_LEVEL);
-    
-        if (currentLevel > oldLevel) {
-            board.onLevelUp(currentLevel);  // Trigger level up popup
-        }
     }
 
     // Getters
@@ -0,0 +1,278 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Plays AI-vs-AI matches on the headless MatchEngine as fast as the machine allows and reports
+// throughput and outcome statistics. Matches are spread over a fork-join pool; each one runs on
+// a fixed timestep with no frame pacing, and every player plays one piece per step.
+// Usage: java SelfPlayRunner [games] [threads] [seed] [depth] [beamWidth] [maxPieces]
+public class SelfPlayRunner {
+    public static final double STEP = 1.0 / 60.0;
+    public static final int DEFAULT_MAX_PIECES = 2000; // Per player; longer matches count as draws
+    private static final int GAMES_PER_TASK = 8; // Matches a leaf task plays on one engine before splitting stops
+
+    private final int depth;
+    private final int beamWidth;
+    private final int nodeBudget;
+    private final int maxPieces;
+
+    public SelfPlayRunner(int depth, int beamWidth, int nodeBudget, int maxPieces) {
+        this.depth = depth;
+        this.beamWidth = beamWidth;
+        this.nodeBudget = nodeBudget;
+        this.maxPieces = maxPieces;
+    }
+
+    // Plays games matches; match i is dealt from a seed derived from (seed, i), so a run is
+    // reproducible whatever the thread count
+    public Stats run(int games, int threads, long seed) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            long start = System.nanoTime();
+            Stats stats = pool.invoke(new MatchTask(seed, 0, games));
+            stats.wallNanos = System.nanoTime() - start;
+            return stats;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private final class MatchTask extends RecursiveTask<Stats> {
+        private static final long serialVersionUID = 1L;
+
+        private final long seed;
+        private final int from;
+        private final int to;
+
+        MatchTask(long seed, int from, int to) {
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Stats compute() {
+            if (to - from > GAMES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                MatchTask left = new MatchTask(seed, from, mid);
+                left.fork();
+                Stats right = new MatchTask(seed, mid, to).compute();
+                Stats stats = left.join();
+                stats.add(right);
+                return stats;
+            }
+
+            // One engine and a pair of controllers (with their search buffers) per leaf
+            Stats stats = new Stats(maxPieces);
+            MatchEngine engine = new MatchEngine(2);
+            AIController[] players = new AIController[2];
+            for (int p = 0; p < players.length; p++) {
+                players[p] = new AIController(engine, p);
+                players[p].configureSearch(depth, beamWidth, nodeBudget, false); // Parallel across games instead
+            }
+            MatchCounter counter = new MatchCounter();
+            engine.setListener(counter);
+            for (int game = from; game < to; game++) {
+                playMatch(engine, players, counter, gameSeed(seed, game), stats);
+            }
+            return stats;
+        }
+    }
+
+    private void playMatch(MatchEngine engine, AIController[] players, MatchCounter counter, long seed,
+            Stats stats) {
+        counter.clear();
+        engine.reset(GameMode.ONE_PLAYER_VS_AI, false, seed);
+        int steps = 0;
+        while (!engine.isMatchOver() && (counter.pieces[0] < maxPieces || counter.pieces[1] < maxPieces)) {
+            for (int p = 0; p < players.length; p++) {
+                if (counter.pieces[p] < maxPieces) {
+                    players[p].playPiece();
+                }
+            }
+            engine.update(STEP);
+            steps++;
+        }
+
+        int winner = -1;
+        if (engine.isMatchOver()) {
+            for (int p = 0; p < players.length; p++) {
+                if (!engine.getPlayerGameState(p).isGameOver()) {
+                    winner = p;
+                }
+            }
+        }
+        stats.addMatch(winner, counter.pieces[0] + counter.pieces[1], counter.lines, counter.garbage, steps);
+    }
+
+    private static long gameSeed(long seed, int game) {
+        return new SplittableRandom(seed + game * 0x9E3779B97F4A7C15L).nextLong();
+    }
+
+    // Tallies one match from the engine's events
+    private static final class MatchCounter implements MatchListener {
+        final int[] pieces = new int[2];
+        long lines;
+        long garbage;
+
+        void clear() {
+            pieces[0] = 0;
+            pieces[1] = 0;
+            lines = 0;
+            garbage = 0;
+        }
+
+        @Override
+        public void onMatchEvent(int player, int event, int value) {
+            switch (event) {
+                case MatchEngine.EVENT_LOCK:
+                    pieces[player]++;
+                    break;
+                case MatchEngine.EVENT_LINES_CLEARED:
+                    lines += value;
+                    break;
+                case MatchEngine.EVENT_GARBAGE_RECEIVED:
+                    garbage += value; // Received by one player = sent by the other
+                    break;
+            }
+        }
+    }
+
+    // Aggregated results of a run. Match lengths (pieces by both players) go into a histogram
+    // with LENGTH_BUCKET-wide buckets, which the percentiles are read from.
+    public static final class Stats {
+        public static final int LENGTH_BUCKET = 50;
+
+        private long games;
+        private final long[] wins = new long[2];
+        private long draws;
+        private long pieces;
+        private long lines;
+        private long garbageSent;
+        private long steps;
+        private int longestMatch;
+        private final long[] lengthHistogram;
+        private final int buckets;
+        private long wallNanos;
+
+        // Sized so that every match up to the piece cap for both players has its own bucket;
+        // the last bucket is open-ended
+        Stats(int maxPieces) {
+            buckets = 2 * maxPieces / LENGTH_BUCKET + 1;
+            lengthHistogram = new long[buckets];
+        }
+
+        void addMatch(int winner, int matchPieces, long matchLines, long matchGarbage, int matchSteps) {
+            games++;
+            if (winner >= 0) {
+                wins[winner]++;
+            } else {
+                draws++;
+            }
+            pieces += matchPieces;
+            lines += matchLines;
+            garbageSent += matchGarbage;
+            steps += matchSteps;
+            longestMatch = Math.max(longestMatch, matchPieces);
+            lengthHistogram[Math.min(buckets - 1, matchPieces / LENGTH_BUCKET)]++;
+        }
+
+        void add(Stats other) {
+            games += other.games;
+            wins[0] += other.wins[0];
+            wins[1] += other.wins[1];
+            draws += other.draws;
+            pieces += other.pieces;
+            lines += other.lines;
+            garbageSent += other.garbageSent;
+            steps += other.steps;
+            longestMatch = Math.max(longestMatch, other.longestMatch);
+            for (int i = 0; i < buckets; i++) {
+                lengthHistogram[i] += other.lengthHistogram[i];
+            }
+        }
+
+        // Upper edge of the histogram bucket holding the given fraction of matches
+        public int lengthPercentile(double fraction) {
+            long target = (long) Math.ceil(fraction * games);
+            long seen = 0;
+            for (int i = 0; i < buckets; i++) {
+                seen += lengthHistogram[i];
+                if (seen >= target && seen > 0) {
+                    return i == buckets - 1 ? longestMatch : (i + 1) * LENGTH_BUCKET;
+                }
+            }
+            return longestMatch;
+        }
+
+        public double getPiecesPerSecond() {
+            return wallNanos == 0 ? 0 : pieces * 1e9 / wallNanos;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public long getWins(int player) {
+            return wins[player];
+        }
+
+        public long getDraws() {
+            return draws;
+        }
+
+        public long getPieces() {
+            return pieces;
+        }
+
+        public long getLines() {
+            return lines;
+        }
+
+        public long getGarbageSent() {
+            return garbageSent;
+        }
+
+        public long getSteps() {
+            return steps;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%d matches in %.2f s: %.0f pieces/s simulated (%.1f matches/s)%n",
+                    games, wallNanos / 1e9, getPiecesPerSecond(), wallNanos == 0 ? 0 : games * 1e9 / wallNanos));
+            sb.append(String.format("Wins P0 %d, P1 %d, draws %d%n", wins[0], wins[1], draws));
+            sb.append(String.format("Pieces %d, lines %d, garbage sent %d, simulated time %.0f s%n",
+                    pieces, lines, garbageSent, steps * STEP));
+            if (games > 0) {
+                sb.append(String.format("Match length (pieces): mean %.1f, p10 %d, p50 %d, p90 %d, p99 %d, max %d%n",
+                        (double) pieces / games, lengthPercentile(0.10), lengthPercentile(0.50),
+                        lengthPercentile(0.90), lengthPercentile(0.99), longestMatch));
+                for (int i = 0; i < buckets; i++) {
+                    if (lengthHistogram[i] == 0) {
+                        continue;
+                    }
+                    String label = i == buckets - 1 ? String.format("%5d+     ", i * LENGTH_BUCKET)
+                            : String.format("%5d-%-5d", i * LENGTH_BUCKET, (i + 1) * LENGTH_BUCKET - 1);
+                    sb.append(String.format("  %s %8d%n", label, lengthHistogram[i]));
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1L;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        int beamWidth = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+        int maxPieces = args.length > 5 ? Integer.parseInt(args[5]) : DEFAULT_MAX_PIECES;
+
+        SelfPlayRunner runner = new SelfPlayRunner(depth, beamWidth, BeamSearchPlanner.DEFAULT_NODE_BUDGET, maxPieces);
+        System.out.printf("Self-play: %d matches on %d threads, seed %d, depth %d, beam %d%n",
+                games, threads, seed, depth, beamWidth);
+        System.out.print(runner.run(games, threads, seed));
+    }
+}
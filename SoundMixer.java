@@ -0,0 +1,160 @@
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Clip;
+import javax.sound.sampled.FloatControl;
+
+// Plays short sound effects from Clips that are opened once, when the sound is registered, and
+// reused for every play. Each sound gets a fixed number of voices; when they are all busy the one
+// that started longest ago is cut off and restarted. A sound asked for more than once in the same
+// frame plays once. play() only writes the request into a ring buffer, and a daemon thread does
+// the stop/rewind/start, so the game thread neither blocks on the audio system nor allocates.
+public class SoundMixer {
+    public static final int DEFAULT_VOICES = 2;
+    private static final int QUEUE_CAPACITY = 64; // Requests waiting for the worker; more are dropped
+
+    // Per sound: its voices, when each voice was last started, and the frame it was last asked for
+    private Clip[][] voices = new Clip[0][];
+    private long[][] voiceStarted = new long[0][];
+    private long[] requestedFrame = new long[0];
+    private int soundCount;
+    private long frame = 1;
+
+    // Single-producer (game thread), single-consumer (worker) ring buffer of sound ids and gains
+    private final int[] queuedSounds = new int[QUEUE_CAPACITY];
+    private final float[] queuedGains = new float[QUEUE_CAPACITY];
+    private volatile int head; // Next slot the worker reads
+    private volatile int tail; // Next slot play() writes
+
+    private final Thread worker;
+    private volatile boolean closed;
+
+    public SoundMixer() {
+        worker = new Thread(this::drain, "Sound mixer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Opens `voiceCount` Clips holding the sound and returns the id to play it by. Voices the
+    // audio system refuses (no device, out of lines) are left out; a sound with none plays nothing.
+    public synchronized int register(AudioFormat format, byte[] data, int length, int voiceCount) {
+        Clip[] opened = new Clip[voiceCount];
+        int count = 0;
+        for (int v = 0; v < voiceCount; v++) {
+            try {
+                Clip clip = AudioSystem.getClip();
+                clip.open(format, data, 0, length);
+                opened[count++] = clip;
+            } catch (Exception exception) {
+                System.out.println("Error: could not open an audio line (" + exception.getMessage() + ")\n");
+                break;
+            }
+        }
+
+        int id = soundCount++;
+        if (id == voices.length) {
+            int grown = Math.max(16, voices.length * 2);
+            voices = Arrays.copyOf(voices, grown);
+            voiceStarted = Arrays.copyOf(voiceStarted, grown);
+            requestedFrame = Arrays.copyOf(requestedFrame, grown);
+        }
+        voices[id] = Arrays.copyOf(opened, count);
+        voiceStarted[id] = new long[count];
+        return id;
+    }
+
+    // Starts a new dedupe window; GameEngine calls this once per frame before updating
+    public void nextFrame() {
+        frame++;
+    }
+
+    public boolean play(int sound) {
+        return play(sound, 0f);
+    }
+
+    // Queues the sound at `gain` decibels (0 for its recorded volume). Returns false if it was
+    // already queued this frame, or the queue is full. Call from the game thread only.
+    public boolean play(int sound, float gain) {
+        if (closed || sound < 0 || sound >= soundCount || requestedFrame[sound] == frame) {
+            return false;
+        }
+        int t = tail;
+        int next = (t + 1) % QUEUE_CAPACITY;
+        if (next == head) {
+            return false;
+        }
+        requestedFrame[sound] = frame;
+        queuedSounds[t] = sound;
+        queuedGains[t] = gain;
+        tail = next; // Publishes the slot to the worker
+        LockSupport.unpark(worker);
+        return true;
+    }
+
+    private void drain() {
+        while (!closed) {
+            int h = head;
+            if (h == tail) {
+                LockSupport.park(this);
+                continue;
+            }
+            start(queuedSounds[h], queuedGains[h]);
+            head = (h + 1) % QUEUE_CAPACITY;
+        }
+    }
+
+    private synchronized void start(int sound, float gain) {
+        Clip[] pool = voices[sound];
+        long[] started = voiceStarted[sound];
+        if (pool.length == 0) {
+            return;
+        }
+        // A voice that has finished, otherwise the one that has been playing longest
+        int chosen = 0;
+        for (int v = 0; v < pool.length; v++) {
+            if (!pool[v].isRunning()) {
+                chosen = v;
+                break;
+            }
+            if (started[v] < started[chosen]) {
+                chosen = v;
+            }
+        }
+
+        Clip clip = pool[chosen];
+        try {
+            clip.stop();
+            clip.flush();
+            clip.setFramePosition(0);
+            if (clip.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
+                FloatControl control = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
+                control.setValue(Math.max(control.getMinimum(), Math.min(control.getMaximum(), gain)));
+            }
+            clip.start();
+            started[chosen] = System.nanoTime();
+        } catch (Exception exception) {
+            System.out.println("Error playing Audio Clip\n");
+        }
+    }
+
+    // Stops the worker and releases every line
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(worker);
+        for (int s = 0; s < soundCount; s++) {
+            for (Clip clip : voices[s]) {
+                clip.close();
+            }
+            voices[s] = new Clip[0];
+        }
+    }
+
+    public int getVoiceCount(int sound) {
+        return voices[sound].length;
+    }
+}
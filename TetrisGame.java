@@ -1,48 +1,17 @@
 import java.awt.Color;
 import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 
 public class TetrisGame extends GameEngine {
 
-    public static class Particle {
-        double x, y; // current position (pixels)
-        double vx, vy; // current velocity (pixels/sec)
-        double lifetime; // how long this particle lives (seconds)
-        double age; // how long it’s been alive (seconds)
-        Color color; // particle color
-        int size; // square size in pixels
-
-        public Particle(double x, double y, double vx, double vy, double lifetime, Color color, int size) {
-            this.x = x;
-            this.y = y;
-            this.vx = vx;
-            this.vy = vy;
-            this.lifetime = lifetime;
-            this.age = 0;
-            this.color = color;
-            this.size = size;
-        }
-
-        public void update(double dt) {
-            age += dt;
-
-            x += vx * dt;
-            y += vy * dt;
-        }
-
-        public boolean isDead() {
-            return age >= lifetime;
-        }
-
-        public float alpha() {
-            double ratio = Math.max(0, 1 - (age / lifetime));
-            return (float) ratio;
-        }
-    }
-
     public static class RowFlash {
         int rowY; // cleared‐row index (board coords)
         double age; // how long it’s been alive
@@ -85,21 +54,29 @@ public class TetrisGame extends GameEngine {
     // 1.1b) Track active row‐flashes
     private List<RowFlash> rowFlashes = new ArrayList<>();
 
-    // 3.1b) A list to hold all active particles
-    private List<Particle> particles = new ArrayList<>();
+    // 3.1b) Pool holding all active particles
+    private ParticlePool particles = new ParticlePool(ParticlePool.DEFAULT_CAPACITY);
+    // Scales particles and other cosmetic effects to the frame rate actually achieved
+    private EffectsBudget effectsBudget = new EffectsBudget(FRAME_RATE);
     private Random particleRng = new Random();
     // private static final int NUM_PLAYERS = 2; // Replaced by activePlayers
     private int activePlayers = 0; // Number of players in the current game mode
 
+    // The rules run in a headless MatchEngine; the per-player arrays below are views onto its state
+    private MatchEngine engine;
     private Board[] boards;
     private Piece[] currentPieces;
     private ScoreManager[] scoreManagers;
     private GameState[] gameStates; // Still used for per-player game over, countdown, etc.
     private InputHandler[] inputHandlers;
     private Renderer renderer;
-    private PieceGenerator pieceGenerator; // Shared piece generator
 private AIController aiController; // Added AI Controller instance
 
+    // Popups are presentation only, so they live here and are fed by engine events
+    private List<List<ScorePopup>> scorePopups = new ArrayList<>();
+    private List<List<LevelUpPopup>> levelUpPopups = new ArrayList<>();
+    private int[] lastLinesCleared; // Set by EVENT_LINES_CLEARED, names the popup of the EVENT_SCORE after it
+
     private GameState globalGameState; // Manages overall game mode, menu, global pause/help
 
     // Tile palette - order matters!
@@ -115,33 +92,72 @@ private AIController aiController; // Added AI Controller instance
             new Color(100, 100, 100) // 8 = Garbage tile
     };
 
-    // Per-player arrays - will be sized by activePlayers
-    private double[] fallIntervals;
-    private double[] fallTimers;
-    private final double lockDelay = 0.5; // Shared lock delay
-    private double[] lockTimers;
-    private Integer[] heldPieceTypes;
-    private boolean[] canHolds;
-
     // Global game running states (distinct from globalGameState.currentMode)
     private boolean isGloballyPaused = false;
     private boolean overallGameOver = false;
     private boolean gameHasStarted = false; // To know if game components are initialised
     private boolean isEscPaused = false; // New flag for ESC-initiated pause
 
-    public static void main(String[] args) {
-        createGame(new TetrisGame(), 30);
+    // Damage tracking: what was on screen when each area was last drawn, compared every frame
+    private static final int EFFECTS_MARGIN = 100; // Particles fly up to 600 px/s for 0.15 s
+    private final long[] screenState = new long[11], drawnScreen = new long[11];
+    private final long[] boardState = new long[12];
+    private long[] hudState = new long[0];
+    private long[][] drawnBoards = new long[0][], drawnHuds = new long[0][];
+    private boolean effectsDrawn; // Particles or row flashes were on screen last frame
+
+    // Every match is recorded and saved to REPLAY_DIRECTORY when it ends
+    private static final String REPLAY_DIRECTORY = "replays";
+    private final ReplayRecorder replayRecorder = new ReplayRecorder();
+    private ReplayPlayer replayPlayer; // Set while watching a replay instead of playing
+    private Replay pendingReplay; // Replay given on the command line, started by init()
+
+    // Game logic runs in fixed ticks at this rate, whatever the frame rate
+    private static final int LOGIC_HZ = 120;
+    private static final int FRAME_RATE = 60;
+    private static final int ACTIVE_FRAME_RATE = 144; // With --active: page-flipped canvas on its own thread
+
+    // Piece rows at the start of the current tick, so the renderer can slide falling pieces
+    private int[] tickStartPieceY;
+    private int[] tickStartSpawnSerial;
+
+    // Usage: java TetrisGame [--active] [--particles=<cap>] [replay file]
+    public static void main(String[] args) throws IOException {
+        TetrisGame game = new TetrisGame();
+        for (String arg : args) {
+            if ("--active".equals(arg)) {
+                game.setActiveRendering(true);
+            } else if (arg.startsWith("--particles=")) {
+                game.particles = new ParticlePool(Integer.parseInt(arg.substring("--particles=".length())));
+            } else {
+                game.pendingReplay = Replay.load(Paths.get(arg));
+            }
+        }
+        int frameRate = game.isActiveRendering() ? ACTIVE_FRAME_RATE : FRAME_RATE;
+        game.effectsBudget = new EffectsBudget(frameRate);
+        createGame(game, frameRate);
     }
 
     @Override
     public void init() {
         globalGameState = new GameState();
+        setFixedTimestep(LOGIC_HZ); // Same gravity and lock timing whatever the frame rate
+        setDamageTracking(true); // Repaint only what changed; idle menus and pauses draw nothing
         setWindowSize(600, 470); // Changed from 420 to 470
         renderer = new Renderer(this, null, null, null, null, tileColors, globalGameState);
         gameHasStarted = false;
+        if (pendingReplay != null) {
+            startGameMode(pendingReplay.getMode(), pendingReplay);
+            pendingReplay = null;
+        }
     }
 
     private void startGameMode(GameMode mode) {
+        startGameMode(mode, null);
+    }
+
+    // With a replay, the match is played back from it instead of taking input
+    private void startGameMode(GameMode mode, Replay replay) {
         if (mode == GameMode.ONE_PLAYER) {
             activePlayers = 1;
             // Calculate width for 1 player: total player area + one spacing unit on each
@@ -154,7 +170,6 @@ private AIController aiController; // Added AI Controller instance
         } else if (mode == GameMode.ONE_PLAYER_VS_AI) { // New Mode
             activePlayers = 2; // Human (P0) vs AI (P1)
             setWindowSize(Renderer.PLAYER_TOTAL_WIDTH * 2 + Renderer.PLAYER_AREA_SPACING + Renderer.BOARD_LEFT_PADDING * 2, 420);
-            aiController = new AIController(this, 1); // AI controls player 1
         } else {
             globalGameState.setCurrentMode(GameMode.MENU);
             setWindowSize(600, 470); // Changed from 420 to 470
@@ -162,29 +177,44 @@ private AIController aiController; // Added AI Controller instance
         }
 
         // Initialise game components based on activePlayers
-        pieceGenerator = new PieceGenerator(); // Fresh sequence for new game
+        engine = new MatchEngine(activePlayers, replay != null ? replay.getRandomizer() : Randomizer.Type.BAG_7);
+        engine.setListener(this::onMatchEvent);
+        if (replay != null) {
+            replayPlayer = new ReplayPlayer(replay, engine);
+        } else {
+            replayPlayer = null;
+            engine.setRecorder(replayRecorder);
+        }
 
         boards = new Board[activePlayers];
         currentPieces = new Piece[activePlayers];
         scoreManagers = new ScoreManager[activePlayers];
         gameStates = new GameState[activePlayers]; // Per-player states
         inputHandlers = new InputHandler[activePlayers];
-
-        fallIntervals = new double[activePlayers];
-        fallTimers = new double[activePlayers];
-        lockTimers = new double[activePlayers];
-        heldPieceTypes = new Integer[activePlayers];
-        canHolds = new boolean[activePlayers];
+        lastLinesCleared = new int[activePlayers];
+        tickStartPieceY = new int[activePlayers];
+        tickStartSpawnSerial = new int[activePlayers];
+        scorePopups.clear();
+        levelUpPopups.clear();
 
         for (int i = 0; i < activePlayers; i++) {
-                        boards[i] = new Board(renderer.getAssetManager());
-            pieceGenerator = new PieceGenerator();
-            currentPieces[i] = new Piece(boards[i], pieceGenerator, renderer.getAssetManager());
-            scoreManagers[i] = new ScoreManager(boards[i]); // Pass board reference
-            gameStates[i] = new GameState(); // Each player has their own game state (for game over, countdown etc)
-                                             // but globalGameState.currentMode is the authority on overall mode
-            gameStates[i].setCurrentMode(mode); // Set player's state to the active game mode
+            boards[i] = engine.getBoard(i);
+            currentPieces[i] = engine.getCurrentPiece(i);
+            scoreManagers[i] = engine.getScoreManager(i);
+            gameStates[i] = engine.getPlayerGameState(i); // Each player has their own game state (for game over, countdown etc)
+                                                          // but globalGameState.currentMode is the authority on overall mode
             inputHandlers[i] = new InputHandler(this, i);
+            scorePopups.add(new ArrayList<>());
+            levelUpPopups.add(new ArrayList<>());
+        }
+
+        if (aiController != null) {
+            aiController.shutdown();
+            aiController = null;
+        }
+        if (mode == GameMode.ONE_PLAYER_VS_AI && replayPlayer == null) {
+            aiController = new AIController(engine, 1); // AI controls player 1
+            aiController.setAsync(true); // Think on a background thread, never on the game loop
         }
 
         // Update renderer with the now initialised game components
@@ -202,12 +232,6 @@ private AIController aiController; // Added AI Controller instance
         renderer.getAssetManager().handleMusicInput('1');
     }
 
-    public void resetFallTimer(int playerIndex) {
-        if (!gameHasStarted || playerIndex < 0 || playerIndex >= activePlayers)
-            return;
-        this.fallTimers[playerIndex] = 0;
-    }
-
     public void restartGame() { // Now resets based on activePlayers
         if (!gameHasStarted)
             return; // Don't restart if game components not set up
@@ -215,28 +239,17 @@ private AIController aiController; // Added AI Controller instance
         overallGameOver = false;
         isGloballyPaused = false;
 
+        // Empty boards, fresh scores and first pieces; every player starts with the countdown
+        if (replayPlayer != null) {
+            replayPlayer.start(); // Same seed and settings as the recorded match
+        } else {
+            engine.reset(globalGameState.getCurrentMode(), true);
+        }
         for (int i = 0; i < activePlayers; i++) {
-            if (gameStates[i] != null) {
-                gameStates[i].reset(); // Reset individual player states
-                gameStates[i].setCurrentMode(globalGameState.getCurrentMode()); // Ensure player state reflects current
-                                                                                // game mode
-                gameStates[i].setShowCountdown(true);
-            }
-            if (scoreManagers[i] != null)
-                scoreManagers[i].reset();
-            if (boards[i] != null)
-                boards[i].clearBoard();
             if (inputHandlers[i] != null)
                 inputHandlers[i].resetDAS();
-
-            fallTimers[i] = 0;
-            lockTimers[i] = 0;
-            heldPieceTypes[i] = null;
-            canHolds[i] = true;
-            spawnNewPiece(i); // This might immediately set game over if spawn fails
-            if (!gameStates[i].isGameOver()) { // Only update fall interval if not game over from spawn
-                updateFallInterval(i);
-            }
+            scorePopups.get(i).clear();
+            levelUpPopups.get(i).clear();
         }
         // Adjust window size based on active players after restart
         // This ensures if restartGame is called independently, window is correct.
@@ -252,114 +265,17 @@ private AIController aiController; // Added AI Controller instance
         }
     }
 
-    private void spawnNewPiece(int playerIndex) {
-        updateFallInterval(playerIndex);
-        if (!gameHasStarted || playerIndex < 0 || playerIndex >= activePlayers)
-            return;
-        currentPieces[playerIndex].spawnNewPiece();
-        if (currentPieces[playerIndex].checkSpawnCollision()) {
-            gameStates[playerIndex].setGameOver(true);
-            renderer.getAssetManager().playSound(renderer.getAssetManager().gameOverSound);
-            renderer.getAssetManager().stopMusic();
-            checkOverallGameOver();
-        }
-        fallTimers[playerIndex] = 0;
-        lockTimers[playerIndex] = 0;
-        canHolds[playerIndex] = true;
-    }
-
-    private void updateFallInterval(int playerIndex) {
-        if (!gameHasStarted || playerIndex < 0 || playerIndex >= activePlayers)
-            return;
-        int level = scoreManagers[playerIndex].getLevel();
-        double interval;
-        switch (level) {
-            case 1:
-                interval = 48.0 / 60.0;
-                break;
-            case 2:
-                interval = 43.0 / 60.0;
-                break;
-            case 3:
-                interval = 38.0 / 60.0;
-                break;
-            case 4:
-                interval = 33.0 / 60.0;
-                break;
-            case 5:
-                interval = 28.0 / 60.0;
-                break;
-            case 6:
-                interval = 23.0 / 60.0;
-                break;
-            case 7:
-                interval = 18.0 / 60.0;
-                break;
-            case 8:
-                interval = 13.0 / 60.0;
-                break;
-            case 9:
-                interval = 8.0 / 60.0;
-                break;
-            case 10:
-                interval = 6.0 / 60.0;
-                break;
-            case 11:
-                interval = 5.0 / 60.0;
-                break;
-            case 12:
-                interval = 4.0 / 60.0;
-                break;
-            case 13:
-                interval = 3.0 / 60.0;
-                break;
-            case 14:
-                interval = 2.0 / 60.0;
-                break;
-            case 15:
-                interval = 1.0 / 60.0;
-                break;
-            default:
-                interval = Math.max(1.0 / 60.0, 48.0 / 60.0 - ((level - 1) * 5.0 / 60.0));
-        }
-        fallIntervals[playerIndex] = interval;
-    }
-
-    private void checkOverallGameOver() {
-        if (!gameHasStarted)
-            return;
-        int playersGameOver = 0;
-        for (int i = 0; i < activePlayers; i++) {
-            if (gameStates[i].isGameOver()) {
-                playersGameOver++;
-            }
-        }
-        // In 1P mode, any game over is overall game over.
-        // In 2P mode, if one player is game over, the other wins (game might continue
-        // for a moment or stop).
-        // Or, if all but one player is game over.
-        if (activePlayers > 0 && playersGameOver >= (activePlayers > 1 ? activePlayers - 1 : 1)) {
-            if (activePlayers == 1 && playersGameOver == 1)
-                overallGameOver = true;
-            else if (activePlayers > 1 && playersGameOver >= activePlayers - 1) { // If one player left, or all topped
-                                                                                  // out
-                overallGameOver = true;
-                // Could add logic to determine winner explicitly if needed for display
+    @Override
+    public void update(double dt) {
+        if (gameHasStarted) {
+            for (int i = 0; i < activePlayers; i++) {
+                tickStartPieceY[i] = currentPieces[i].getY();
+                tickStartSpawnSerial[i] = currentPieces[i].getSpawnSerial();
             }
         }
-        // If only one player remains, this player is the winner, and the game over.
-    }
 
-    @Override
-    public void update(double dt) {
         // 1.3a) Advance & remove dead particles
-        Iterator<Particle> pit = particles.iterator();
-        while (pit.hasNext()) {
-            Particle p = pit.next();
-            p.update(dt);
-            if (p.isDead())
-                pit.remove();
-        }
+        particles.update(dt);
 
         // 1.3b) Advance & remove expired row‐flashes
         Iterator<RowFlash> fit = rowFlashes.iterator();
@@ -374,312 +290,338 @@ private AIController aiController; // Added AI Controller instance
             // If in menu or help screen is shown globally, don't update game logic
             // Update countdown for any active player states if necessary (though usually
             // not in menu)
-            if (gameHasStarted) { // Only if game components are initialised
-                for (int i = 0; i < activePlayers; i++) {
-                    if (gameStates[i] != null)
-                        gameStates[i].updateCountdown();
-                }
+            if (gameHasStarted && replayPlayer == null) { // Only if game components are initialised
+                engine.updateCountdowns(dt);
             }
             return;
         }
 
         if (!gameHasStarted || overallGameOver || isGloballyPaused) {
             // Update countdowns even if game is over or paused globally
-            if (gameHasStarted) {
-                for (int i = 0; i < activePlayers; i++) {
-                    if (gameStates[i] != null)
-                        gameStates[i].updateCountdown();
-                }
+            if (gameHasStarted && replayPlayer == null) { // A replay has its own countdown steps
+                engine.updateCountdowns(dt);
             }
             return;
         }
 
-        double maxDt = 0.1;
-        if (dt > maxDt)
-            dt = maxDt;
+        if (replayPlayer != null) {
+            // Inputs and time steps come from the recording, paced by real time
+            replayPlayer.advance(dt);
+        } else {
+            updateMatch(dt);
+        }
 
+        // Update score popups
+        for (int i = 0; i < activePlayers; i++) {
+            scorePopups.get(i).removeIf(popup -> !popup.update(dt));
+            levelUpPopups.get(i).removeIf(popup -> !popup.update(dt));
+        }
+    }
+
+    // Player input, the AI and one engine step
+    private void updateMatch(double dt) {
+        boolean aiMode = globalGameState.getCurrentMode() == GameMode.ONE_PLAYER_VS_AI;
         for (int i = 0; i < activePlayers; i++) {
-            if (inputHandlers[i] != null && 
-                !(globalGameState.getCurrentMode() == GameMode.ONE_PLAYER_VS_AI && i == 1)) { // P0 gets input
+            boolean aiPlayer = aiMode && i == 1;
+            if (inputHandlers[i] != null && !aiPlayer) { // P0 gets input
                 inputHandlers[i].update(dt);
             }
-            if (gameStates[i] != null)
-                gameStates[i].updateCountdown();
+            // The AI player always falls at soft drop speed
+            engine.setSoftDropping(i, aiPlayer || inputHandlers[i].isSoftDropping());
+        }
 
-            if (gameStates[i].isGameOver() || gameStates[i].isPaused() || gameStates[i].isShowCountdown()) {
-                continue;
-            }
+        // AI Controller Update for Player 1 in ONE_PLAYER_VS_AI mode
+        if (aiMode && aiController != null) {
+            aiController.update(dt); // AI makes its move (rotates and positions)
+        }
 
-            // AI Controller Update for Player 1 in ONE_PLAYER_VS_AI mode
-            if (globalGameState.getCurrentMode() == GameMode.ONE_PLAYER_VS_AI && i == 1 && aiController != null) {
-                if (!gameStates[i].isGameOver() && !gameStates[i].isPaused() && !gameStates[i].isShowCountdown()) {
-                    aiController.update(dt); // AI makes its move (rotates and positions)
-                }
-                // AI moves are discrete for rotation and horizontal. Fall logic below will handle soft drop.
-                // We no longer 'continue' here, so the AI piece will go through the standard fall logic.
-            }
+        // Countdown, gravity, locking, line clears and garbage for every player
+        engine.update(dt);
+    }
 
-            double currentFallSpeed = inputHandlers[i].isSoftDropping() ? (fallIntervals[i] / 20.0) : fallIntervals[i];
-            // For AI player in ONE_PLAYER_VS_AI mode, force soft drop speed if AI is active for this player
-            if (globalGameState.getCurrentMode() == GameMode.ONE_PLAYER_VS_AI && i == 1) {
-                currentFallSpeed = fallIntervals[i] / 20.0; // Use soft drop speed for AI
-            }
-            
-            fallTimers[i] += dt;
-
-            while (fallTimers[i] >= currentFallSpeed) {
-                fallTimers[i] -= currentFallSpeed;
-                if (currentPieces[i].isLanded()) {
-                    lockTimers[i] += currentFallSpeed;
-                    if (lockTimers[i] >= lockDelay) {
-                        lockPiece(i);
-                        if (overallGameOver)
-                            break; // If locking piece caused game over for all, stop.
-                    }
-                } else {
-                    currentPieces[i].moveDown();
-                    lockTimers[i] = 0;
-                }
-            }
-            if (overallGameOver)
-                break; // Break outer loop if game ended
+    // Countdown after unpausing; a replay already contains its own
+    private void startResumeCountdown() {
+        if (replayPlayer != null) {
+            return;
         }
-
-        // Update score popups
         for (int i = 0; i < activePlayers; i++) {
-            if (boards[i] != null) {
-                boards[i].updateScorePopups(dt);
-            }
+            engine.startCountdown(i);
         }
+    }
 
-        // Update background music
-        if (!isGloballyPaused && gameHasStarted) {
-            renderer.getAssetManager().updateMusic(dt);
+    private void saveReplay() {
+        try {
+            Path directory = Paths.get(REPLAY_DIRECTORY);
+            Files.createDirectories(directory);
+            Replay replay = replayRecorder.toReplay();
+            String fileName = String.format("replay-%d-%016x.trpl", System.currentTimeMillis(), replay.getSeed());
+            replay.save(directory.resolve(fileName));
+        } catch (IOException e) {
+            System.out.println("Error: could not save replay " + e.getMessage());
         }
     }
 
-    private void lockPiece(int playerIndex) {
-        if (!gameHasStarted || playerIndex < 0 || playerIndex >= activePlayers
-                || currentPieces == null || currentPieces[playerIndex] == null
-                || boards == null || boards[playerIndex] == null
-                || scoreManagers == null || scoreManagers[playerIndex] == null
-                || gameStates == null || gameStates[playerIndex] == null) {
-            return;
+    // Sounds, popups and effects for everything the engine reports
+    private void onMatchEvent(int playerIndex, int event, int value) {
+        AssetManager assets = renderer.getAssetManager();
+        switch (event) {
+            case MatchEngine.EVENT_MOVE:
+                assets.playSound(assets.moveSound);
+                break;
+            case MatchEngine.EVENT_MOVE_BLOCKED:
+                assets.playSound(assets.blockedMoveSound);
+                break;
+            case MatchEngine.EVENT_ROTATE:
+                assets.playSound(assets.rotateSound);
+                break;
+            case MatchEngine.EVENT_ROTATE_BLOCKED:
+                assets.playSound(assets.blockedRotateSound);
+                break;
+            case MatchEngine.EVENT_SOFT_DROP:
+                assets.playSound(assets.softDropSound);
+                break;
+            case MatchEngine.EVENT_HARD_DROP:
+                assets.playSound(assets.hardDropSound);
+                break;
+            case MatchEngine.EVENT_HOLD:
+                assets.playSound(assets.holdSound);
+                break;
+            case MatchEngine.EVENT_LOCK:
+                assets.playSound(assets.lockSound);
+                break;
+            case MatchEngine.EVENT_ROW_CLEARED:
+                spawnRowClearEffects(playerIndex, value);
+                break;
+            case MatchEngine.EVENT_LINES_CLEARED:
+                lastLinesCleared[playerIndex] = value;
+                // Play appropriate line clear sound
+                switch (value) {
+                    case 1: assets.playSound(assets.singleLineSound); break;
+                    case 2: assets.playSound(assets.doubleLineSound); break;
+                    case 3: assets.playSound(assets.tripleLineSound); break;
+                    case 4: assets.playSound(assets.tetrisSound); break;
+                }
+                break;
+            case MatchEngine.EVENT_SCORE:
+                addScorePopup(playerIndex, lastLinesCleared[playerIndex], value);
+                break;
+            case MatchEngine.EVENT_LEVEL_UP:
+                assets.playSound(assets.levelUpSound);
+                // Create popup at middle of the board
+                int popupY = (Board.VISIBLE_HEIGHT / 2) * Renderer.TILE_SIZE;
+                levelUpPopups.get(playerIndex).add(new LevelUpPopup(value, popupY));
+                break;
+            case MatchEngine.EVENT_GAME_OVER:
+                assets.playSound(assets.gameOverSound);
+                assets.stopMusic();
+                break;
+            case MatchEngine.EVENT_MATCH_OVER:
+                overallGameOver = true;
+                if (replayPlayer == null) {
+                    saveReplay();
+                }
+                break;
+        }
+    }
+
+    private void addScorePopup(int playerIndex, int linesCleared, int scoreValue) {
+        String type = "";
+        switch (linesCleared) {
+            case 1: type = "Single"; break;
+            case 2: type = "Double"; break;
+            case 3: type = "Triple"; break;
+            case 4: type = "Tetris!"; break;
         }
+        int popupY = (int) (Board.VISIBLE_HEIGHT * 0.75 * Renderer.TILE_SIZE);
+        scorePopups.get(playerIndex).add(new ScorePopup(type, scoreValue, popupY));
+    }
 
-        // 1) Lock the piece into the board
-        currentPieces[playerIndex].lockPiece();
-        renderer.getAssetManager().playSound(renderer.getAssetManager().lockSound);
-        updateFallInterval(playerIndex);
+    // Row flash plus a dense particle cloud for one full row, sent by the engine before it is cleared
+    private void spawnRowClearEffects(int playerIndex, int boardY) {
+        int displayY = boardY - Board.BUFFER_HEIGHT;
+        if (displayY < 0)
+            return;
 
-        // 1. PRE‐SCAN visible rows for “full” before clearing
-        List<Integer> rowsToFlash = new ArrayList<>();
-        int[][] grid = boards[playerIndex].getGrid();
-        for (int y = Board.BUFFER_HEIGHT; y < Board.TOTAL_HEIGHT; y++) {
-            boolean rowFull = true;
-            for (int x = 0; x < Board.WIDTH; x++) {
-                if (grid[x][y] == 0) {
-                    rowFull = false;
-                    break;
+        // Determine on‐screen X‐offset of this player’s board
+        int tilePx = Renderer.TILE_SIZE;
+        int boardOffsetX;
+        if (activePlayers == 1) {
+            boardOffsetX = (this.mWidth - Board.WIDTH * tilePx) / 2;
+        } else {
+            int i = playerIndex;
+            int baseOffset = i * (Renderer.PLAYER_TOTAL_WIDTH + Renderer.PLAYER_AREA_SPACING)
+                    + Renderer.BOARD_LEFT_PADDING;
+            boardOffsetX = (i == 0) ? baseOffset + 120 : baseOffset + 230;
+        }
+
+        // (a) one RowFlash per cleared row
+        rowFlashes.add(new RowFlash(displayY));
+
+        // (b) now spawn a dense, medium‐speed, medium‐lifetime cloud
+        double cellY = displayY * tilePx + (tilePx / 2.0);
+        for (int xCell = 0; xCell < Board.WIDTH; xCell++) {
+            double cellX = boardOffsetX + xCell * tilePx + (tilePx / 2.0);
+
+            // 300 particles per cell for a solid look at full quality, fewer when frames run late
+            int particlesPerCell = effectsBudget.scale(300);
+            for (int k = 0; k < particlesPerCell; k++) {
+                // small jitter so they form a spreading blur
+                double jitter = tilePx * 0.1; // ≈2px
+                double px = cellX + (particleRng.nextDouble() * jitter * 2 - jitter);
+                double py = cellY + (particleRng.nextDouble() * jitter * 2 - jitter);
+
+                // moderate sideways speed so they visibly spread over ~0.1–0.2s
+                double vx = (particleRng.nextDouble() * 1200) - 600; // ±600 px/sec
+                double vy = 0;
+
+                // a bit longer lifetime so they spread visibly (0.10–0.15s)
+                double lifetime = 0.10 + particleRng.nextDouble() * 0.05;
+
+                // Jitter the inner spark color and outer glow color
+                if (particleRng.nextDouble() < 0.25) {
+                    // 25% of particles are pure white “core sparks”
+                    particles.spawn(px, py, vx, vy, lifetime, ParticlePool.WHITE, 2);
+                } else {
+                    // 75% are pale‐blue “outer sparks”
+                    particles.spawn(px, py, vx, vy, lifetime, ParticlePool.PALE_BLUE, 2);
                 }
-            }
-            if (rowFull) {
-                // record the board‐coordinate Y for this full row
-                rowsToFlash.add(y);
+
             }
         }
+    }
 
-        // 2) Now actually clear them (this shifts everything down internally)
-        boards[playerIndex].checkAndClearCompletedRows(
-                scoreManagers[playerIndex],
-                scoreManagers[playerIndex].getLevel());
-
-        int linesCleared = rowsToFlash.size();
+    // Player inputs, forwarded to the engine unless the game is globally paused
 
-        if (linesCleared > 0) {
-            // 3) Determine on‐screen X‐offset of this player’s board
-            int tilePx = Renderer.TILE_SIZE;
-            int boardOffsetX;
-            if (activePlayers == 1) {
-                boardOffsetX = (this.mWidth - Board.WIDTH * tilePx) / 2;
-            } else {
-                int i = playerIndex;
-                int baseOffset = i * (Renderer.PLAYER_TOTAL_WIDTH + Renderer.PLAYER_AREA_SPACING)
-                        + Renderer.BOARD_LEFT_PADDING;
-                boardOffsetX = (i == 0) ? baseOffset + 120 : baseOffset + 230;
-            }
+    public boolean hardDropActivePiece(int playerIndex) {
+        if (!gameHasStarted || isGloballyPaused)
+            return false;
+        return engine.hardDrop(playerIndex);
+    }
 
-            // 4) For each pre‐shifted row Y, spawn both the RowFlash and a dense particle
-            // cloud
-            for (int boardY : rowsToFlash) {
-                int displayY = boardY - Board.BUFFER_HEIGHT;
-                if (displayY < 0)
-                    continue;
+    // Returns false if the rotation was blocked (or the game isn't accepting input)
+    public boolean rotateActivePiece(int playerIndex, boolean clockwise) {
+        if (!gameHasStarted || isGloballyPaused)
+            return false;
+        return engine.rotate(playerIndex, clockwise);
+    }
 
-                // (a) one RowFlash per cleared row
-                rowFlashes.add(new RowFlash(displayY));
-
-                // (b) now spawn a dense, medium‐speed, medium‐lifetime cloud
-                double cellY = displayY * tilePx + (tilePx / 2.0);
-                for (int xCell = 0; xCell < Board.WIDTH; xCell++) {
-                    double cellX = boardOffsetX + xCell * tilePx + (tilePx / 2.0);
-
-                    // use 80‒100 particles per cell for a solid look, but slower than before
-                    int particlesPerCell = 300;
-                    for (int k = 0; k < particlesPerCell; k++) {
-                        // small jitter so they form a spreading blur
-                        double jitter = tilePx * 0.1; // ≈2px
-                        double px = cellX + (particleRng.nextDouble() * jitter * 2 - jitter);
-                        double py = cellY + (particleRng.nextDouble() * jitter * 2 - jitter);
-
-                        // moderate sideways speed so they visibly spread over ~0.1–0.2s
-                        double vx = (particleRng.nextDouble() * 1200) - 600; // ±600 px/sec
-                        double vy = 0;
-
-                        // a bit longer lifetime so they spread visibly (0.10–0.15s)
-                        double lifetime = 0.10 + particleRng.nextDouble() * 0.05;
-
-                        // Jitter the inner spark color and outer glow color
-                        if (particleRng.nextDouble() < 0.25) {
-                            // 25% of particles are pure white “core sparks”
-                            particles.add(new Particle(px, py, vx, vy, lifetime, Color.WHITE, 2));
-                        } else {
-                            // 75% are pale‐blue “outer sparks” with lower alpha
-                            Color paleBlue = new Color(180, 220, 255, 180);
-                            // use an RGBA with alpha=180 so these always draw semi‐transparent
-                            particles.add(new Particle(px, py, vx, vy, lifetime, paleBlue, 2));
-                        }
+    public boolean holdActivePiece(int playerIndex) {
+        if (!gameHasStarted || isGloballyPaused)
+            return false;
+        return engine.hold(playerIndex);
+    }
 
-                    }
-                }
-            }
-        }
+    public boolean moveActivePieceLeft(int playerIndex) {
+        if (!gameHasStarted || isGloballyPaused)
+            return false;
+        return engine.moveLeft(playerIndex);
+    }
 
-        // 5) Send garbage (unchanged)
-        if (linesCleared > 0 && activePlayers > 1) {
-            int garbageToSend = 0;
-            switch (linesCleared) {
-                case 1:
-                    garbageToSend = 0;
-                    break;
-                case 2:
-                    garbageToSend = 1;
-                    break;
-                case 3:
-                    garbageToSend = 2;
-                    break;
-                case 4:
-                    garbageToSend = 4;
-                    break;
-                default:
-                    garbageToSend = (linesCleared > 4)
-                            ? (4 + (linesCleared - 4) * 2)
-                            : 0;
-            }
-            if (garbageToSend > 0) {
-                for (int opponentIndex = 0; opponentIndex < activePlayers; opponentIndex++) {
-                    if (opponentIndex == playerIndex)
-                        continue;
-                    if (opponentIndex >= 0 && opponentIndex < activePlayers
-                            && gameStates != null && opponentIndex < gameStates.length
-                            && gameStates[opponentIndex] != null
-                            && boards != null && opponentIndex < boards.length
-                            && boards[opponentIndex] != null) {
-
-                        if (!gameStates[opponentIndex].isGameOver()) {
-                            boolean opponentTopped = boards[opponentIndex]
-                                    .addGarbageLines(garbageToSend);
-                            if (opponentTopped) {
-                                gameStates[opponentIndex].setGameOver(true);
-                                renderer.getAssetManager().playSound(renderer.getAssetManager().gameOverSound);
-                                renderer.getAssetManager().stopMusic();
-                                checkOverallGameOver(); 
-                            }
-                        }
-                    }
-                }
-            }
-        }
+    public boolean moveActivePieceRight(int playerIndex) {
+        if (!gameHasStarted || isGloballyPaused)
+            return false;
+        return engine.moveRight(playerIndex);
+    }
 
-        // 6) Spawn next piece (unchanged)
-        if (!overallGameOver) {
-            spawnNewPiece(playerIndex);
-        }
+    // One cell down without locking (the soft drop key's first step)
+    public boolean moveActivePieceDown(int playerIndex) {
+        if (!gameHasStarted || isGloballyPaused)
+            return false;
+        return engine.moveDown(playerIndex);
     }
 
-    public void hardDropActivePiece(int playerIndex) {
-        if (!gameHasStarted || currentPieces[playerIndex] == null || gameStates[playerIndex].isGameOver()
-                || isGloballyPaused)
-            return;
-        while (!currentPieces[playerIndex].isLanded()) {
-            currentPieces[playerIndex].moveDown();
-        }
-        renderer.getAssetManager().playSound(renderer.getAssetManager().hardDropSound);
-        lockPiece(playerIndex);
+    // The per-frame step while soft drop is held
+    public boolean softDropActivePiece(int playerIndex) {
+        if (!gameHasStarted || isGloballyPaused)
+            return false;
+        return engine.softDropStep(playerIndex);
     }
 
-    public void rotateActivePiece(int playerIndex, boolean clockwise) {
-        if (!gameHasStarted || currentPieces[playerIndex] == null || gameStates[playerIndex].isGameOver()
-                || isGloballyPaused)
+    // Marks what changed on screen since the last frame. Menus, help, pause and game over are
+    // static screens repainted whole when they change; in play, each board and HUD is compared
+    // on its own, and boards with popups, flashes or particles on them are repainted every frame.
+    @Override
+    public void findDamage() {
+        long[] screen = screenState;
+        screen[0] = mWidth;
+        screen[1] = mHeight;
+        screen[2] = globalGameState.getCurrentMode().ordinal();
+        screen[3] = globalGameState.isShowHelp() ? 1 : 0;
+        screen[4] = globalGameState.gameModeMenuSelection;
+        screen[5] = globalGameState.pauseMenuSelection;
+        screen[6] = gameHasStarted ? 1 : 0;
+        screen[7] = overallGameOver ? 1 : 0;
+        screen[8] = isGloballyPaused ? 1 : 0;
+        screen[9] = isEscPaused ? 1 : 0;
+        screen[10] = activePlayers;
+        if (changedSinceDrawn(screen, drawnScreen) || renderer == null) {
+            markAllDirty();
+        }
+        boolean playing = gameHasStarted && !overallGameOver && !isGloballyPaused
+                && globalGameState.getCurrentMode() != GameMode.MENU && !globalGameState.isShowHelp();
+        if (!playing) {
             return;
-        if (clockwise) {
-            currentPieces[playerIndex].rotateClockwise();
-        } else {
-            currentPieces[playerIndex].rotateCounterClockwise();
-        }
-        if (currentPieces[playerIndex].isLanded()) {
-            lockTimers[playerIndex] = 0;
         }
-    }
 
-    public void holdActivePiece(int playerIndex) {
-        if (!gameHasStarted || !canHolds[playerIndex] || currentPieces[playerIndex] == null
-                || gameStates[playerIndex].isGameOver() || isGloballyPaused) {
-            return;
+        if (drawnBoards.length != activePlayers) {
+            drawnBoards = new long[activePlayers][boardState.length];
+            drawnHuds = new long[activePlayers][];
         }
-        int currentType = currentPieces[playerIndex].getPieceType();
-        if (heldPieceTypes[playerIndex] == null) {
-            heldPieceTypes[playerIndex] = currentType;
-            spawnNewPiece(playerIndex);
-        } else {
-            int tempType = heldPieceTypes[playerIndex];
-            heldPieceTypes[playerIndex] = currentType;
-            currentPieces[playerIndex].spawnSpecificPiece(tempType);
-            if (currentPieces[playerIndex].checkSpawnCollision()) {
-                gameStates[playerIndex].setGameOver(true);
-                renderer.getAssetManager().playSound(renderer.getAssetManager().gameOverSound);
-                renderer.getAssetManager().stopMusic();
-                checkOverallGameOver();
+        boolean effects = particles.size() > 0 || !rowFlashes.isEmpty();
+        for (int i = 0; i < activePlayers; i++) {
+            Piece piece = currentPieces[i];
+            GameState state = gameStates[i];
+            long[] board = boardState;
+            board[0] = System.identityHashCode(boards[i]);
+            board[1] = boards[i].getVersion();
+            board[2] = piece.getX();
+            board[3] = Double.doubleToLongBits(getRenderPieceY(i));
+            board[4] = piece.getCurrentRotation();
+            board[5] = piece.getPieceType();
+            board[6] = piece.getSpawnSerial();
+            board[7] = state.isShowCountdown() ? 1 : 0;
+            board[8] = state.getCountdownRemaining();
+            board[9] = state.isGameOver() ? 1 : 0;
+            board[10] = state.isPaused() ? 1 : 0;
+            int popups = scorePopups.get(i).size() + levelUpPopups.get(i).size();
+            board[11] = popups; // So the frame after the last one goes is repainted too
+            if (changedSinceDrawn(board, drawnBoards[i]) || popups > 0 || effects || effectsDrawn) {
+                renderer.markBoardDirty(i, effects || effectsDrawn ? EFFECTS_MARGIN : 0);
             }
-        }
-        renderer.getAssetManager().playSound(renderer.getAssetManager().holdSound);
-        canHolds[playerIndex] = false;
-        fallTimers[playerIndex] = 0;
-        lockTimers[playerIndex] = 0;
-    }
 
-    public void moveActivePieceLeft(int playerIndex) {
-        if (!gameHasStarted || currentPieces[playerIndex] == null || gameStates[playerIndex].isGameOver()
-                || isGloballyPaused)
-            return;
-        currentPieces[playerIndex].moveLeft();
-        if (currentPieces[playerIndex].isLanded()) {
-            lockTimers[playerIndex] = 0;
+            if (hudState.length != 3 + piece.getPreviewSize()) {
+                hudState = new long[3 + piece.getPreviewSize()];
+            }
+            long[] hud = hudState;
+            hud[0] = scoreManagers[i].getScore();
+            hud[1] = scoreManagers[i].getLevel();
+            hud[2] = engine.getHeldPieceType(i);
+            for (int k = 3; k < hud.length; k++) {
+                hud[k] = piece.peekNextPieceType(k - 3);
+            }
+            if (drawnHuds[i] == null || drawnHuds[i].length != hud.length) {
+                drawnHuds[i] = new long[hud.length];
+                renderer.markHudDirty(i);
+            }
+            if (changedSinceDrawn(hud, drawnHuds[i])) {
+                renderer.markHudDirty(i);
+            }
         }
+        effectsDrawn = effects;
     }
 
-    public void moveActivePieceRight(int playerIndex) {
-        if (!gameHasStarted || currentPieces[playerIndex] == null || gameStates[playerIndex].isGameOver()
-                || isGloballyPaused)
-            return;
-        currentPieces[playerIndex].moveRight();
-        if (currentPieces[playerIndex].isLanded()) {
-            lockTimers[playerIndex] = 0;
+    // Copies now into drawn, returning whether they differed
+    private static boolean changedSinceDrawn(long[] now, long[] drawn) {
+        if (Arrays.equals(now, drawn)) {
+            return false;
         }
+        System.arraycopy(now, 0, drawn, 0, now.length);
+        return true;
     }
 
     @Override
     public void paintComponent() {
+        effectsBudget.recordFrame(getFrameTime());
         if (renderer != null) {
             renderer.render();
         }
@@ -713,9 +655,7 @@ private AIController aiController; // Added AI Controller instance
                     isGloballyPaused = false;
                     isEscPaused = false;
                     renderer.getAssetManager().handleMusicInput('1');
-                    for(int i=0; i<activePlayers; i++) {
-                        if(gameStates[i] != null) gameStates[i].setShowCountdown(true);
-                    }
+                    startResumeCountdown();
                     break;
                 case KeyEvent.VK_UP:
                     globalGameState.previousPauseOption();
@@ -729,9 +669,7 @@ private AIController aiController; // Added AI Controller instance
                         isGloballyPaused = false;
                         isEscPaused = false;
                         renderer.getAssetManager().handleMusicInput('1');
-                        for(int i=0; i<activePlayers; i++) {
-                            if(gameStates[i] != null) gameStates[i].setShowCountdown(true);
-                        }
+                        startResumeCountdown();
                     } else if ("Help".equals(selectedEscPauseOption)) {
                         globalGameState.setShowHelp(true);
                         setWindowSize(800, 450); // Changed from 600 to 500
@@ -789,7 +727,7 @@ private AIController aiController; // Added AI Controller instance
             }
 
             // If not overall game over, proceed with active game/pause logic:
-            if (!isGloballyPaused) {
+            if (!isGloballyPaused && replayPlayer == null) {
                 for (int i = 0; i < activePlayers; i++) {
                     if (inputHandlers[i] != null && gameStates[i] != null && !gameStates[i].isGameOver()) {
                         // In AI mode, only player 0 gets keyboard input
@@ -812,10 +750,7 @@ private AIController aiController; // Added AI Controller instance
                         renderer.getAssetManager().stopMusic();
                     } else {
                         renderer.getAssetManager().handleMusicInput('1');
-                        for (int i = 0; i < activePlayers; i++) {
-                            if (gameStates[i] != null)
-                                gameStates[i].setShowCountdown(true);
-                        }
+                        startResumeCountdown();
                     }
                 }
             }
@@ -918,7 +853,16 @@ private AIController aiController; // Added AI Controller instance
     public Integer getHeldPieceType(int playerIndex) {
         if (!gameHasStarted || playerIndex < 0 || playerIndex >= activePlayers)
             return null;
-        return heldPieceTypes[playerIndex];
+        int held = engine.getHeldPieceType(playerIndex);
+        return held == MatchEngine.NO_HOLD ? null : held;
+    }
+
+    public List<ScorePopup> getScorePopups(int playerIndex) {
+        return scorePopups.get(playerIndex);
+    }
+
+    public List<LevelUpPopup> getLevelUpPopups(int playerIndex) {
+        return levelUpPopups.get(playerIndex);
     }
 
     public int getActivePlayers() {
@@ -937,8 +881,20 @@ private AIController aiController; // Added AI Controller instance
         return isGloballyPaused;
     }
 
-    public PieceGenerator getPieceGenerator() {
-        return pieceGenerator;
+    // Row to draw the active piece at: slides between the last two ticks while it falls one row,
+    // and snaps for anything else (spawns, hard drops, several rows in one tick)
+    public double getRenderPieceY(int playerIndex) {
+        Piece piece = currentPieces[playerIndex];
+        int y = piece.getY();
+        if (tickStartPieceY == null || piece.getSpawnSerial() != tickStartSpawnSerial[playerIndex]
+                || y - tickStartPieceY[playerIndex] != 1) {
+            return y;
+        }
+        return tickStartPieceY[playerIndex] + getInterpolation();
+    }
+
+    public MatchEngine getMatchEngine() {
+        return engine;
     }
 
     public boolean hasGameStarted() {
@@ -949,9 +905,14 @@ private AIController aiController; // Added AI Controller instance
         return isEscPaused;
     } // Getter for ESC pause state
 
-    public List<?> getParticles() {
+    // Current effects level and smoothed frame rate, e.g. for monitoring a kiosk
+    public EffectsBudget getEffectsBudget() {
+        return effectsBudget;
+    }
+
+    public ParticlePool getParticles() {
         return particles;
-    } // Getter for particles list
+    } // Getter for the particle pool
 
     public List<?> getRowFlashes() {
         return rowFlashes;
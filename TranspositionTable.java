@@ -0,0 +1,169 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Fixed-size cache of evaluation scores keyed by (board hash, piece, hold piece).
+// Entries live in two-slot buckets. A new entry takes a slot that is empty or left
+// over from an older search generation, otherwise it evicts the older of the two
+// entries. The table never grows, so its memory use is known up front.
+// Not thread-safe; the planner only uses it from its serial merge step.
+public class TranspositionTable {
+    public static final int DEFAULT_ENTRIES = 1 << 14;
+    public static final int NO_PIECE = -1; // For the hold slot when nothing is held
+
+    private static final int BUCKET_SIZE = 2;
+    private static final long[] PIECE_KEYS = new long[Piece.SHAPES.length];
+    private static final long[] HOLD_KEYS = new long[Piece.SHAPES.length + 1]; // index 0 = empty hold
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x77AB1EL);
+        for (int i = 0; i < PIECE_KEYS.length; i++) {
+            PIECE_KEYS[i] = random.nextLong();
+        }
+        for (int i = 0; i < HOLD_KEYS.length; i++) {
+            HOLD_KEYS[i] = random.nextLong();
+        }
+    }
+
+    private final long[] keys;
+    private final double[] scores;
+    private final int[] generations; // Search generation that wrote each slot, 0 = empty
+    private final int mask;
+    private int generation = 1;
+
+    // Statistics since the last resetStats()
+    private long probes;
+    private long hits; // Matches written in the current generation
+    private long staleHits; // Matches left over from an older generation
+    private long stores;
+    private long evictions; // Stores that overwrote an entry of the current generation
+
+    public TranspositionTable() {
+        this(DEFAULT_ENTRIES);
+    }
+
+    // entries is rounded up to a power of two (and at least one bucket)
+    public TranspositionTable(int entries) {
+        int size = Integer.highestOneBit(Math.max(BUCKET_SIZE, entries) - 1) << 1;
+        keys = new long[size];
+        scores = new double[size];
+        generations = new int[size];
+        mask = size - 1;
+    }
+
+    public static long key(long boardHash, int piece, int hold) {
+        return boardHash ^ PIECE_KEYS[piece] ^ HOLD_KEYS[hold + 1];
+    }
+
+    // Starts a new search generation: older entries stay readable but are the first to be replaced
+    public void newGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(generations, 0);
+            generation = 1;
+        }
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    // Returns the slot holding key, or -1 on a miss. Only a match from the current generation
+    // counts as a hit; older ones are counted as stale hits.
+    public int probe(long key) {
+        probes++;
+        int bucket = (int) (key ^ (key >>> 32)) & mask & ~(BUCKET_SIZE - 1);
+        for (int i = bucket; i < bucket + BUCKET_SIZE; i++) {
+            if (generations[i] != 0 && keys[i] == key) {
+                if (generations[i] == generation) {
+                    hits++;
+                } else {
+                    staleHits++;
+                }
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public double getScore(int slot) {
+        return scores[slot];
+    }
+
+    // Generation the slot was last written in, so callers can tell this search's entries apart
+    public int getSlotGeneration(int slot) {
+        return generations[slot];
+    }
+
+    public void store(long key, double score) {
+        int bucket = (int) (key ^ (key >>> 32)) & mask & ~(BUCKET_SIZE - 1);
+        int victim = bucket;
+        for (int i = bucket; i < bucket + BUCKET_SIZE; i++) {
+            if (generations[i] == 0 || keys[i] == key) {
+                victim = i; // Empty slot or same position: always take it
+                break;
+            }
+            if (generations[i] < generations[victim]) {
+                victim = i;
+            }
+        }
+        if (generations[victim] == generation && keys[victim] != key) {
+            evictions++;
+        }
+        keys[victim] = key;
+        scores[victim] = score;
+        generations[victim] = generation;
+        stores++;
+    }
+
+    public void clear() {
+        Arrays.fill(generations, 0);
+        generation = 1;
+    }
+
+    public void resetStats() {
+        probes = 0;
+        hits = 0;
+        staleHits = 0;
+        stores = 0;
+        evictions = 0;
+    }
+
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    // Heap used by the entry arrays, for sizing the table against a memory budget
+    public long getMemoryBytes() {
+        return (long) keys.length * (Long.BYTES + Double.BYTES + Integer.BYTES);
+    }
+
+    public long getProbes() {
+        return probes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getStaleHits() {
+        return staleHits;
+    }
+
+    public long getStores() {
+        return stores;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public double getHitRate() {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TT %d entries (%d KB): %d probes, %.1f%% hits (%d stale), %d stores, %d evictions",
+                keys.length, getMemoryBytes() / 1024, probes, getHitRate() * 100, staleHits, stores, evictions);
+    }
+}
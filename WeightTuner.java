@@ -0,0 +1,344 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Offline genetic search over the AI's evaluation weights. Every generation, each weight vector
+// in the population plays the same set of seeded solo games on the headless MatchEngine (spread
+// over a fork-join pool), searching as deep and wide as the game's AI does. Fitness is the mean
+// score before topping out or hitting the piece cap: lines alone stop telling vectors apart once
+// they all survive to the cap, points still reward multi-line clears. The fittest vectors are
+// kept, the rest are replaced by fitness-weighted crossovers of tournament winners plus Gaussian
+// mutation. Weight vectors are kept at unit length, since scaling all four weights by the same
+// positive factor never changes a decision.
+// Progress is checkpointed after every generation, and a run pointed at an existing checkpoint
+// picks up where it stopped.
+// Usage: java WeightTuner [checkpoint] [generations] [population] [games] [maxPieces] [threads] [seed]
+//                         [depth] [beamWidth]
+public class WeightTuner {
+    public static final String DEFAULT_CHECKPOINT = "weight-tuner.properties";
+
+    private static final int ELITES = 2; // Best vectors copied unchanged into the next generation
+    private static final int TOURNAMENT_SIZE = 3;
+    private static final double MUTATION_RATE = 0.3; // Chance that a child's weight is perturbed
+    private static final double MUTATION_SIZE = 0.2; // Standard deviation of the perturbation
+    private static final int GAMES_PER_TASK = 4;
+
+    // Purposes of the per-generation random streams, kept apart so no draw is used twice
+    private static final int INITIAL_STREAM = 0;
+    private static final int GAME_STREAM = 1;
+    private static final int BREED_STREAM = 2;
+
+    private final Path checkpoint;
+    private final int populationSize;
+    private final int gamesPerVector;
+    private final int maxPieces;
+    private final int depth;
+    private final int beamWidth;
+    private final long seed;
+
+    private int generation;
+    private EvaluationWeights[] population;
+    private double[] fitness;
+    private EvaluationWeights best = EvaluationWeights.DEFAULT;
+    private double bestFitness = Double.NEGATIVE_INFINITY;
+
+    public WeightTuner(Path checkpoint, int populationSize, int gamesPerVector, int maxPieces, int depth,
+            int beamWidth, long seed) {
+        if (populationSize <= ELITES) {
+            throw new IllegalArgumentException("Population must be larger than " + ELITES);
+        }
+        this.checkpoint = checkpoint;
+        this.populationSize = populationSize;
+        this.gamesPerVector = gamesPerVector;
+        this.maxPieces = maxPieces;
+        this.depth = depth;
+        this.beamWidth = beamWidth;
+        this.seed = seed;
+    }
+
+    // Loads the checkpoint if there is one, otherwise seeds the population around the default weights
+    public void initialise() throws IOException {
+        if (Files.exists(checkpoint)) {
+            load();
+            return;
+        }
+        SplittableRandom random = generationRandom(0, INITIAL_STREAM);
+        population = new EvaluationWeights[populationSize];
+        population[0] = normalise(EvaluationWeights.DEFAULT.toArray());
+        for (int i = 1; i < populationSize; i++) {
+            double[] weights = new double[EvaluationWeights.COUNT];
+            for (int w = 0; w < weights.length; w++) {
+                weights[w] = random.nextDouble(-1, 1);
+            }
+            population[i] = normalise(weights);
+        }
+    }
+
+    // Runs generations until `generations` have completed in total (including resumed ones)
+    public void run(int generations, int threads) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            while (generation < generations) {
+                long start = System.nanoTime();
+                evaluate(pool);
+                int fittest = 0;
+                for (int i = 1; i < populationSize; i++) {
+                    if (fitness[i] > fitness[fittest]) {
+                        fittest = i;
+                    }
+                }
+                if (fitness[fittest] > bestFitness) {
+                    bestFitness = fitness[fittest];
+                    best = population[fittest];
+                }
+                System.out.printf("Generation %d: best %.0f points (%s), mean %.0f, %.1f s%n", generation,
+                        fitness[fittest], population[fittest], mean(fitness), (System.nanoTime() - start) / 1e9);
+
+                population = breed(generationRandom(generation + 1, BREED_STREAM));
+                generation++;
+                save();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        System.out.printf("Best after %d generations: %s (%.0f points)%n", generation, best, bestFitness);
+    }
+
+    // Plays every vector against the same games, so fitness differences come from the weights
+    private void evaluate(ForkJoinPool pool) {
+        long[] gameSeeds = new long[gamesPerVector];
+        SplittableRandom random = generationRandom(generation, GAME_STREAM);
+        for (int g = 0; g < gameSeeds.length; g++) {
+            gameSeeds[g] = random.nextLong();
+        }
+        double[][] scores = new double[populationSize][gamesPerVector];
+        pool.invoke(new GameTask(gameSeeds, scores, 0, populationSize * gamesPerVector));
+
+        fitness = new double[populationSize];
+        for (int i = 0; i < populationSize; i++) {
+            fitness[i] = mean(scores[i]);
+        }
+    }
+
+    private final class GameTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] gameSeeds;
+        private final double[][] scores;
+        private final int from;
+        private final int to;
+
+        GameTask(long[] gameSeeds, double[][] scores, int from, int to) {
+            this.gameSeeds = gameSeeds;
+            this.scores = scores;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GAMES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new GameTask(gameSeeds, scores, from, mid), new GameTask(gameSeeds, scores, mid, to));
+                return;
+            }
+            // One engine and controller per leaf; each (vector, game) pair writes only its own slot
+            MatchEngine engine = new MatchEngine(1);
+            AIController player = new AIController(engine, 0);
+            player.configureSearch(depth, beamWidth, BeamSearchPlanner.DEFAULT_NODE_BUDGET, false);
+            for (int task = from; task < to; task++) {
+                int vector = task / gamesPerVector;
+                int game = task % gamesPerVector;
+                player.setWeights(population[vector]);
+                scores[vector][game] = playGame(engine, player, gameSeeds[game]);
+            }
+        }
+    }
+
+    private int playGame(MatchEngine engine, AIController player, long gameSeed) {
+        engine.reset(GameMode.ONE_PLAYER, false, gameSeed);
+        for (int pieces = 0; pieces < maxPieces && player.playPiece(); pieces++) {
+            engine.update(SelfPlayRunner.STEP);
+        }
+        return engine.getScoreManager(0).getScore();
+    }
+
+    private EvaluationWeights[] breed(SplittableRandom random) {
+        Integer[] order = new Integer[populationSize];
+        for (int i = 0; i < populationSize; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(fitness[b], fitness[a]));
+
+        EvaluationWeights[] next = new EvaluationWeights[populationSize];
+        for (int i = 0; i < ELITES; i++) {
+            next[i] = population[order[i]];
+        }
+        for (int i = ELITES; i < populationSize; i++) {
+            int a = tournament(random);
+            int b = tournament(random);
+            // Crossover: fitness-weighted average of the two parents
+            double fa = Math.max(fitness[a], 0) + 1e-9;
+            double fb = Math.max(fitness[b], 0) + 1e-9;
+            double[] pa = population[a].toArray();
+            double[] pb = population[b].toArray();
+            double[] child = new double[EvaluationWeights.COUNT];
+            for (int w = 0; w < child.length; w++) {
+                child[w] = (pa[w] * fa + pb[w] * fb) / (fa + fb);
+                if (random.nextDouble() < MUTATION_RATE) {
+                    child[w] += gaussian(random) * MUTATION_SIZE;
+                }
+            }
+            next[i] = normalise(child);
+        }
+        return next;
+    }
+
+    private int tournament(SplittableRandom random) {
+        int winner = random.nextInt(populationSize);
+        for (int i = 1; i < TOURNAMENT_SIZE; i++) {
+            int challenger = random.nextInt(populationSize);
+            if (fitness[challenger] > fitness[winner]) {
+                winner = challenger;
+            }
+        }
+        return winner;
+    }
+
+    // Everything random in a generation derives from (seed, generation, purpose), so a resumed run
+    // makes the same choices an uninterrupted one would have. The multipliers must not be
+    // SplittableRandom's own increment (0x9E3779B97F4A7C15): seeds that far apart give the same
+    // stream shifted by one draw.
+    private SplittableRandom generationRandom(int generation, int purpose) {
+        return new SplittableRandom(seed + generation * 0xBF58476D1CE4E5B9L + purpose * 0x94D049BB133111EBL);
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        // Box-Muller
+        double u = 1.0 - random.nextDouble();
+        double v = random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * v);
+    }
+
+    private static EvaluationWeights normalise(double[] weights) {
+        double length = 0;
+        for (double w : weights) {
+            length += w * w;
+        }
+        length = Math.sqrt(length);
+        if (length == 0) {
+            return EvaluationWeights.DEFAULT;
+        }
+        double[] unit = new double[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            unit[i] = weights[i] / length;
+        }
+        return EvaluationWeights.fromArray(unit);
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double v : values) {
+            sum += v;
+        }
+        return values.length == 0 ? 0 : sum / values.length;
+    }
+
+    // Writes to a temporary file first and moves it into place, so a crash mid-write never
+    // leaves a truncated checkpoint behind
+    private void save() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("seed", Long.toString(seed));
+        properties.setProperty("generation", Integer.toString(generation));
+        properties.setProperty("population", Integer.toString(populationSize));
+        properties.setProperty("search", search());
+        for (int i = 0; i < populationSize; i++) {
+            properties.setProperty("vector." + i, exact(population[i]));
+        }
+        properties.setProperty("best", exact(best));
+        properties.setProperty("bestFitness", Double.toString(bestFitness));
+
+        Path absolute = checkpoint.toAbsolutePath();
+        Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(writer, "WeightTuner checkpoint (weights: height lines holes bumpiness)");
+        }
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Full precision, so a resumed run continues from exactly the same vectors
+    private static String exact(EvaluationWeights weights) {
+        StringBuilder sb = new StringBuilder();
+        for (double w : weights.toArray()) {
+            sb.append(sb.length() == 0 ? "" : " ").append(w);
+        }
+        return sb.toString();
+    }
+
+    private void load() throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(checkpoint, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        if (Long.parseLong(properties.getProperty("seed")) != seed
+                || Integer.parseInt(properties.getProperty("population")) != populationSize) {
+            throw new IOException("Checkpoint " + checkpoint + " was written with a different seed or population size");
+        }
+        if (!search().equals(properties.getProperty("search"))) {
+            // Fitness from another search or piece cap isn't comparable with this run's
+            throw new IOException("Checkpoint " + checkpoint + " was written with another search or piece cap");
+        }
+        generation = Integer.parseInt(properties.getProperty("generation"));
+        population = new EvaluationWeights[populationSize];
+        for (int i = 0; i < populationSize; i++) {
+            population[i] = EvaluationWeights.parse(properties.getProperty("vector." + i));
+        }
+        best = EvaluationWeights.parse(properties.getProperty("best"));
+        bestFitness = Double.parseDouble(properties.getProperty("bestFitness"));
+        System.out.printf("Resuming from %s at generation %d (best so far %s, %.0f points)%n",
+                checkpoint, generation, best, bestFitness);
+    }
+
+    // Settings the fitness values depend on, stored with the checkpoint
+    private String search() {
+        return depth + " " + beamWidth + " " + maxPieces;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public EvaluationWeights getBest() {
+        return best;
+    }
+
+    public double getBestFitness() {
+        return bestFitness;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path checkpoint = Paths.get(args.length > 0 ? args[0] : DEFAULT_CHECKPOINT);
+        int generations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int population = args.length > 2 ? Integer.parseInt(args[2]) : 24;
+        int games = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+        int maxPieces = args.length > 4 ? Integer.parseInt(args[4]) : SelfPlayRunner.DEFAULT_MAX_PIECES;
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 6 ? Long.parseLong(args[6]) : 1L;
+        int depth = args.length > 7 ? Integer.parseInt(args[7]) : BeamSearchPlanner.DEFAULT_DEPTH;
+        int beamWidth = args.length > 8 ? Integer.parseInt(args[8]) : BeamSearchPlanner.DEFAULT_BEAM_WIDTH;
+
+        WeightTuner tuner = new WeightTuner(checkpoint, population, games, maxPieces, depth, beamWidth, seed);
+        tuner.initialise();
+        tuner.run(generations, threads);
+    }
+}
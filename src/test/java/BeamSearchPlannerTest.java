@@ -0,0 +1,59 @@
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BeamSearchPlannerTest {
+
+    // Random stack of up to 12 rows, about 60% filled, so there are holes, overhangs and clears
+    private static Board randomBoard(SplittableRandom random) {
+        Board board = new Board();
+        int rows = random.nextInt(13);
+        for (int y = Board.TOTAL_HEIGHT - rows; y < Board.TOTAL_HEIGHT; y++) {
+            for (int x = 0; x < Board.WIDTH; x++) {
+                if (random.nextInt(10) < 6) {
+                    board.placePiece(x, y, 1);
+                }
+            }
+        }
+        return board;
+    }
+
+    private static void assertParallelMatchesSerial(int depth, int beamWidth, int nodeBudget, long seed) {
+        BeamSearchPlanner serial = new BeamSearchPlanner(depth, beamWidth, nodeBudget, false);
+        BeamSearchPlanner parallel = new BeamSearchPlanner(depth, beamWidth, nodeBudget, true);
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] pieces = new int[depth];
+        for (int search = 0; search < 200; search++) {
+            Board board = randomBoard(random);
+            for (int i = 0; i < depth; i++) {
+                pieces[i] = random.nextInt(Piece.SHAPES.length);
+            }
+            String name = "Budget " + nodeBudget + ", search " + search;
+            boolean found = serial.plan(board, pieces, depth);
+            assertEquals(name, found, parallel.plan(board, pieces, depth));
+            assertEquals(name + ": nodes", serial.getNodesEvaluated(), parallel.getNodesEvaluated());
+            assertTrue(name + ": over budget", serial.getNodesEvaluated() <= nodeBudget);
+            if (found) {
+                assertEquals(name + ": rotation", serial.getBestRotation(), parallel.getBestRotation());
+                assertEquals(name + ": x", serial.getBestX(), parallel.getBestX());
+                assertEquals(name + ": y", serial.getBestY(), parallel.getBestY());
+            }
+        }
+    }
+
+    @Test
+    public void testParallelSearchPicksSameMoveAsSerial() {
+        assertParallelMatchesSerial(BeamSearchPlanner.DEFAULT_DEPTH, BeamSearchPlanner.DEFAULT_BEAM_WIDTH,
+                BeamSearchPlanner.DEFAULT_NODE_BUDGET, 11);
+        assertParallelMatchesSerial(3, 8, 1_000_000, 12); // Unlimited
+        assertParallelMatchesSerial(3, 8, 50, 13); // Budget runs out in the second level
+    }
+
+    @Test
+    public void testNodeBudgetIsHard() {
+        BeamSearchPlanner planner = new BeamSearchPlanner(3, 8, 1, false);
+        assertTrue(planner.plan(new Board(), new int[] { 5, 4, 6 }, 3));
+        assertEquals(1, planner.getNodesEvaluated());
+    }
+}
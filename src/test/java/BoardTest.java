@@ -0,0 +1,117 @@
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BoardTest {
+
+    // Checks the cached features and hash against values rebuilt from the occupied cells alone
+    private static void assertMatchesRecompute(String step, Board board) {
+        Board rebuilt = new Board();
+        int aggregateHeight = 0;
+        int holes = 0;
+        int bumpiness = 0;
+        int previousHeight = 0;
+        for (int x = 0; x < Board.WIDTH; x++) {
+            int height = 0;
+            int columnHoles = 0;
+            for (int y = 0; y < Board.TOTAL_HEIGHT; y++) {
+                if (board.isOccupied(x, y)) {
+                    rebuilt.placePiece(x, y, 1);
+                    if (height == 0) {
+                        height = Board.TOTAL_HEIGHT - y;
+                    }
+                } else if (height > 0) {
+                    columnHoles++;
+                }
+            }
+            assertEquals(step + ": height of column " + x, height, board.getColumnHeight(x));
+            assertEquals(step + ": holes in column " + x, columnHoles, board.getColumnHoles(x));
+            aggregateHeight += height;
+            holes += columnHoles;
+            if (x > 0) {
+                bumpiness += Math.abs(height - previousHeight);
+            }
+            previousHeight = height;
+        }
+        assertEquals(step + ": aggregate height", aggregateHeight, board.getAggregateHeight());
+        assertEquals(step + ": holes", holes, board.countHoles());
+        assertEquals(step + ": bumpiness", bumpiness, board.getBumpiness());
+        assertEquals(step + ": hash", rebuilt.getHash(), board.getHash());
+    }
+
+    private static int[] rowMasks(Board board) {
+        int[] masks = new int[Board.TOTAL_HEIGHT];
+        for (int y = 0; y < Board.TOTAL_HEIGHT; y++) {
+            masks[y] = board.getRowMask(y);
+        }
+        return masks;
+    }
+
+    // Landing row of a straight drop from the top, or -1 if the column is blocked there
+    private static int dropY(Board board, PieceRotations.Rotation rotation, int x) {
+        int y = Board.BUFFER_HEIGHT;
+        if (board.collides(rotation, x, y)) {
+            return -1;
+        }
+        while (!board.collides(rotation, x, y + 1)) {
+            y++;
+        }
+        return y;
+    }
+
+    @Test
+    public void testCachedFeaturesAndHashMatchFullRecompute() {
+        SplittableRandom random = new SplittableRandom(2024);
+        Board board = new Board();
+        // Simulated placements that can still be undone, newest last
+        PieceRotations.Rotation[] undoRotation = new PieceRotations.Rotation[64];
+        int[] undoX = new int[64];
+        int[] undoY = new int[64];
+        long[] undoCleared = new long[64];
+        int[][] undoRows = new int[64][];
+        long[] undoHash = new long[64];
+        int undoCount = 0;
+
+        for (int step = 0; step < 5000; step++) {
+            int operation = random.nextInt(10);
+            PieceRotations.Rotation rotation = PieceRotations.get(random.nextInt(Piece.SHAPES.length),
+                    random.nextInt(PieceRotations.ROTATIONS));
+            int x = -rotation.getMinX() + random.nextInt(Board.WIDTH - rotation.getMaxX() + rotation.getMinX());
+            int y = dropY(board, rotation, x);
+
+            if (operation < 6 && y >= 0 && undoCount < undoRows.length) {
+                undoRows[undoCount] = rowMasks(board);
+                undoHash[undoCount] = board.getHash();
+                undoCleared[undoCount] = board.placeAndClear(rotation, x, y);
+                undoRotation[undoCount] = rotation;
+                undoX[undoCount] = x;
+                undoY[undoCount] = y;
+                undoCount++;
+            } else if (operation < 8 && undoCount > 0) {
+                undoCount--;
+                board.undoPlaceAndClear(undoRotation[undoCount], undoX[undoCount], undoY[undoCount],
+                        undoCleared[undoCount]);
+                assertArrayEquals("Step " + step + ": rows after undo", undoRows[undoCount], rowMasks(board));
+                assertEquals("Step " + step + ": hash after undo", undoHash[undoCount], board.getHash());
+            } else if (operation == 8) {
+                undoCount = 0; // Garbage and locks are not undoable
+                if (board.addGarbageLines(1 + random.nextInt(3), random)) {
+                    board.clearBoard(); // Topped out, start over
+                }
+            } else if (y >= 0) {
+                undoCount = 0;
+                for (int[] block : rotation.getBlocks()) {
+                    board.placePiece(x + block[0], y + block[1], 1 + random.nextInt(7));
+                }
+                board.clearCompletedRows();
+            }
+            assertMatchesRecompute("Step " + step, board);
+
+            if (board.getColumnHeight(Board.WIDTH / 2) > Board.VISIBLE_HEIGHT) {
+                board.clearBoard();
+                undoCount = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class EffectsBudgetTest {
+
+    @Test
+    public void testSlowFramesCutTheBudgetAndFastOnesRestoreIt() {
+        EffectsBudget budget = new EffectsBudget(60);
+        for (int i = 0; i < 120; i++) {
+            budget.recordFrame(1.0 / 20); // Well under target
+        }
+        assertTrue(budget.getLevel() < EffectsBudget.POPUP_ANIMATION_MIN_LEVEL);
+        assertFalse(budget.allowsGlow());
+        assertTrue(budget.scale(300) < 300 / 4);
+
+        for (int i = 0; i < 600; i++) {
+            budget.recordFrame(1.0 / 60);
+        }
+        assertEquals(1.0, budget.getLevel(), 1e-9);
+        assertEquals(300, budget.scale(300));
+    }
+
+    @Test
+    public void testBudgetNeverDropsBelowMinimum() {
+        EffectsBudget budget = new EffectsBudget(144);
+        for (int i = 0; i < 1000; i++) {
+            budget.recordFrame(1.0);
+        }
+        assertEquals(EffectsBudget.MIN_LEVEL, budget.getLevel(), 1e-9);
+        assertEquals(15, budget.scale(300));
+    }
+}
@@ -0,0 +1,42 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MatchEngineTest {
+
+    @Test
+    public void testHardDroppingInPlaceEndsSoloMatchWithoutAnyUi() {
+        MatchEngine engine = new MatchEngine(1);
+        int[] events = new int[16];
+        engine.setListener((player, event, value) -> events[event]++);
+        engine.reset(GameMode.ONE_PLAYER, false);
+
+        int drops = 0;
+        while (!engine.isMatchOver() && drops < 1000) {
+            assertTrue(engine.hardDrop(0));
+            drops++;
+        }
+        assertTrue("Stacking in the middle must top out", engine.isMatchOver());
+        assertEquals(drops, events[MatchEngine.EVENT_HARD_DROP]);
+        assertEquals(drops, events[MatchEngine.EVENT_LOCK]);
+        assertEquals(1, events[MatchEngine.EVENT_GAME_OVER]);
+        assertEquals(1, events[MatchEngine.EVENT_MATCH_OVER]);
+        assertFalse("No input once the match is over", engine.hardDrop(0));
+    }
+
+    @Test
+    public void testHoldOncePerPiece() {
+        MatchEngine engine = new MatchEngine(2);
+        engine.reset(GameMode.TWO_PLAYER, false);
+        int first = engine.getCurrentPiece(0).getPieceType();
+
+        assertEquals(MatchEngine.NO_HOLD, engine.getHeldPieceType(0));
+        assertTrue(engine.hold(0));
+        assertEquals(first, engine.getHeldPieceType(0));
+        assertFalse("Second hold before locking is refused", engine.hold(0));
+
+        engine.hardDrop(0);
+        assertTrue(engine.hold(0));
+        assertEquals(first, engine.getCurrentPiece(0).getPieceType());
+        assertEquals(MatchEngine.NO_HOLD, engine.getHeldPieceType(1));
+    }
+}
@@ -0,0 +1,33 @@
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.MappedByteBuffer;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MusicStreamerTest {
+
+    @Test
+    public void testMapsExactlyTheSampleData() throws Exception {
+        AudioFormat format = new AudioFormat(8000, 16, 2, true, false);
+        byte[] samples = new byte[1000 * format.getFrameSize()];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (byte) i;
+        }
+        File file = File.createTempFile("music", ".wav");
+        file.deleteOnExit();
+        AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(samples), format, 1000);
+        AudioSystem.write(stream, AudioFileFormat.Type.WAVE, file);
+
+        MappedByteBuffer data = MusicStreamer.mapPcmData(file);
+        assertEquals(samples.length, data.remaining());
+        for (int i = 0; i < samples.length; i++) {
+            assertEquals(samples[i], data.get(i));
+        }
+    }
+}
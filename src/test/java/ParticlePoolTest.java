@@ -0,0 +1,34 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ParticlePoolTest {
+
+    @Test
+    public void testDeadParticlesAreReplacedByLiveOnes() {
+        ParticlePool pool = new ParticlePool(10);
+        for (int i = 0; i < 10; i++) {
+            // Even slots die after the first update, odd ones live on and move right at i px/s
+            pool.spawn(0, 0, i, 0, i % 2 == 0 ? 0.5 : 5.0, ParticlePool.WHITE, 2);
+        }
+        pool.update(1.0);
+        assertEquals(5, pool.size());
+        double sum = 0;
+        for (int i = 0; i < pool.size(); i++) {
+            sum += pool.renderX(i, 1.0);
+        }
+        assertEquals(1 + 3 + 5 + 7 + 9, sum, 1e-9); // Every survivor was updated exactly once
+    }
+
+    @Test
+    public void testSpawnStopsAtCapacity() {
+        ParticlePool pool = new ParticlePool(3);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(pool.spawn(0, 0, 0, 0, 1.0, ParticlePool.PALE_BLUE, 2));
+        }
+        assertFalse(pool.spawn(0, 0, 0, 0, 1.0, ParticlePool.PALE_BLUE, 2));
+        assertEquals(3, pool.size());
+        pool.update(2.0);
+        assertEquals(0, pool.size());
+        assertTrue(pool.spawn(0, 0, 0, 0, 1.0, ParticlePool.WHITE, 2));
+    }
+}
@@ -0,0 +1,69 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PieceGeneratorTest {
+
+    @Test
+    public void testSameSeedDealsSameSequenceForEveryRandomizer() {
+        for (Randomizer.Type type : Randomizer.Type.values()) {
+            PieceGenerator a = new PieceGenerator(type, 42);
+            PieceGenerator b = new PieceGenerator(type, 0);
+            b.reset(42);
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(type + " piece " + i, a.getNextPieceType(), b.getNextPieceType());
+            }
+        }
+    }
+
+    @Test
+    public void testPeekMatchesWhatIsDealt() {
+        PieceGenerator generator = new PieceGenerator(Randomizer.Type.CLASSIC, 7);
+        for (int i = 0; i < 200; i++) {
+            int[] preview = new int[generator.getPreviewSize() + 5];
+            for (int k = 0; k < preview.length; k++) {
+                preview[k] = generator.peekPiece(k);
+            }
+            assertEquals(preview[0], generator.getNextPieceType());
+            for (int k = 1; k < preview.length; k++) {
+                assertEquals(preview[k], generator.peekPiece(k - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testBagsDealEveryPieceEqually() {
+        int[] bagSizes = { 7, 14 };
+        Randomizer.Type[] types = { Randomizer.Type.BAG_7, Randomizer.Type.BAG_14 };
+        for (int t = 0; t < types.length; t++) {
+            PieceGenerator generator = new PieceGenerator(types[t], 123);
+            for (int bag = 0; bag < 50; bag++) {
+                int[] counts = new int[Randomizer.PIECE_TYPES];
+                for (int i = 0; i < bagSizes[t]; i++) {
+                    counts[generator.getNextPieceType()]++;
+                }
+                for (int count : counts) {
+                    assertEquals(bagSizes[t] / Randomizer.PIECE_TYPES, count);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMatchPlayersShareSequenceAndSeedReplaysIt() {
+        MatchEngine engine = new MatchEngine(2);
+        engine.reset(GameMode.TWO_PLAYER, false, 99);
+        int[] first = new int[6]; // Few enough that stacking in the middle never tops out
+        for (int i = 0; i < first.length; i++) {
+            first[i] = engine.getCurrentPiece(0).getPieceType();
+            assertEquals(first[i], engine.getCurrentPiece(1).getPieceType());
+            engine.hardDrop(0);
+            engine.hardDrop(1);
+        }
+
+        engine.reset(GameMode.TWO_PLAYER, false, 99);
+        for (int i = 0; i < first.length; i++) {
+            assertEquals(first[i], engine.getCurrentPiece(0).getPieceType());
+            engine.hardDrop(0);
+        }
+    }
+}
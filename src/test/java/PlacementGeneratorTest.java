@@ -0,0 +1,102 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PlacementGeneratorTest {
+
+    // Counts the move sequences of `depth` pieces from pieces[index] on, like a chess perft
+    private static long perft(Board board, int[] pieces, int index, int depth) {
+        PlacementGenerator generator = new PlacementGenerator();
+        int shapeId = pieces[index];
+        int spawnY = shapeId == 0 ? Board.BUFFER_HEIGHT + 1 : Board.BUFFER_HEIGHT;
+        int count = generator.generate(board, shapeId, (Board.WIDTH / 2) - 1, spawnY, 0);
+        if (depth == 1) {
+            return count;
+        }
+        long total = 0;
+        for (int p = 0; p < count; p++) {
+            PieceRotations.Rotation rotation = PieceRotations.get(shapeId, generator.getPlacementRotation(p));
+            int x = generator.getPlacementX(p);
+            int y = generator.getPlacementY(p);
+            long cleared = board.placeAndClear(rotation, x, y);
+            total += perft(board, pieces, index + 1, depth - 1);
+            board.undoPlaceAndClear(rotation, x, y, cleared);
+        }
+        return total;
+    }
+
+    @Test
+    public void testEmptyBoardHasOneLandingSpotPerColumnAndRotation() {
+        Board board = new Board();
+        for (int shapeId = 0; shapeId < Piece.SHAPES.length; shapeId++) {
+            int expected = 0;
+            int rotations = shapeId == PieceRotations.O_PIECE ? 1 : PieceRotations.ROTATIONS;
+            for (int r = 0; r < rotations; r++) {
+                PieceRotations.Rotation rotation = PieceRotations.get(shapeId, r);
+                expected += Board.WIDTH - (rotation.getMaxX() - rotation.getMinX());
+            }
+            assertEquals("Placements for shape " + shapeId, expected, perft(board, new int[] { shapeId }, 0, 1));
+        }
+    }
+
+    @Test
+    public void testPerftCounts() {
+        Board board = new Board();
+        assertEquals(34, perft(board, new int[] { 5 }, 0, 1));
+        assertEquals(306, perft(board, new int[] { 0, 3 }, 0, 2));
+        assertEquals(42206, perft(board, new int[] { 5, 4, 6 }, 0, 3));
+    }
+
+    @Test
+    public void testFindsTuckUnderOverhangWithReplayablePath() {
+        Board board = new Board();
+        for (int x = 0; x < 8; x++) {
+            board.placePiece(x, Board.TOTAL_HEIGHT - 1, 1);
+            board.placePiece(x, Board.TOTAL_HEIGHT - 2, 1);
+        }
+        for (int x = 0; x < 3; x++) {
+            board.placePiece(x, Board.TOTAL_HEIGHT - 4, 1); // Roof with an empty row beneath it
+        }
+
+        // A horizontal I slid left under the roof; dropping straight down at x = 1 lands on the roof
+        int tuckX = 1;
+        int tuckY = Board.TOTAL_HEIGHT - 3;
+        PieceRotations.Rotation flat = PieceRotations.get(0, 0);
+        int dropY = Board.BUFFER_HEIGHT + 1;
+        while (!board.collides(flat, tuckX, dropY + 1)) {
+            dropY++;
+        }
+        assertTrue("Straight drop must not reach the tuck", dropY < tuckY);
+
+        PlacementGenerator generator = new PlacementGenerator();
+        generator.generate(board, 0, (Board.WIDTH / 2) - 1, Board.BUFFER_HEIGHT + 1, 0);
+        int placement = generator.findPlacement(tuckX, tuckY, 0);
+        assertTrue("Tuck should be reachable", placement >= 0);
+
+        // Replay the path with the game's movement rules
+        byte[] path = new byte[PlacementGenerator.MAX_PATH];
+        int length = generator.getPath(placement, path);
+        int x = (Board.WIDTH / 2) - 1;
+        int y = Board.BUFFER_HEIGHT + 1;
+        int rotation = 0;
+        for (int i = 0; i < length; i++) {
+            int nx = x;
+            int ny = y;
+            int nr = rotation;
+            switch (path[i]) {
+                case PlacementGenerator.MOVE_LEFT: nx--; break;
+                case PlacementGenerator.MOVE_RIGHT: nx++; break;
+                case PlacementGenerator.MOVE_DOWN: ny++; break;
+                case PlacementGenerator.ROTATE_CW: nr = (nr + 1) % 4; break;
+                case PlacementGenerator.ROTATE_CCW: nr = (nr + 3) % 4; break;
+                default: fail("Unknown move " + path[i]);
+            }
+            assertFalse("Move " + i + " is blocked", board.collides(PieceRotations.get(0, nr), nx, ny));
+            x = nx;
+            y = ny;
+            rotation = nr;
+        }
+        assertEquals(tuckX, x);
+        assertEquals(tuckY, y);
+        assertEquals(0, rotation);
+    }
+}
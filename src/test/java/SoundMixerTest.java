@@ -0,0 +1,28 @@
+import javax.sound.sampled.AudioFormat;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SoundMixerTest {
+
+    @Test
+    public void testSoundIsPlayedOncePerFrame() {
+        SoundMixer mixer = new SoundMixer();
+        AudioFormat format = new AudioFormat(44100, 16, 1, true, false);
+        byte[] silence = new byte[441 * 2];
+        int move = mixer.register(format, silence, silence.length, 2);
+        int rotate = mixer.register(format, silence, silence.length, 2);
+
+        assertTrue(mixer.play(move));
+        assertFalse(mixer.play(move)); // Same frame: heard once
+        assertTrue(mixer.play(rotate));
+
+        mixer.nextFrame();
+        assertTrue(mixer.play(move));
+        assertFalse(mixer.play(-1));
+
+        mixer.close();
+        mixer.nextFrame();
+        assertFalse(mixer.play(move));
+    }
+}